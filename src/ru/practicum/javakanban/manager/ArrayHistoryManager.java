@@ -0,0 +1,233 @@
+package ru.practicum.javakanban.manager;
+
+import ru.practicum.javakanban.model.Task;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/*
+История на заранее выделенных массивах фиксированной ёмкости. Записи лежат в ячейках, связанных в список
+индексами prev/next, а id задачи находится по таблице с открытой адресацией на примитивных int, поэтому add и
+remove ничего не выделяют в куче: ни узлов, ни упакованных ключей. Освободившиеся ячейки собираются в список
+свободных, при заполнении вытесняется самая давняя запись. getHistory по контракту строит новый список,
+а copyHistory читает историю в переданный буфер без выделений.
+*/
+public class ArrayHistoryManager implements HistoryManager {
+    private static final int NIL = -1;
+    private static final int MAX_CAPACITY = 1 << 29;
+
+    private final Task[] tasks;
+    private final int[] ids;
+    private final int[] prev;
+    private final int[] next;
+    private final int[] table;
+    private final int mask;
+    private int head = NIL;
+    private int tail = NIL;
+    private int freeHead = NIL;
+    private int used;
+    private int size;
+
+    public ArrayHistoryManager(int capacity) {
+        if (capacity <= 0 || capacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("Ёмкость истории должна быть от 1 до " + MAX_CAPACITY);
+        }
+
+        tasks = new Task[capacity];
+        ids = new int[capacity];
+        prev = new int[capacity];
+        next = new int[capacity];
+        // таблица заполнена не больше чем наполовину, чтобы цепочки проб оставались короткими
+        table = new int[Integer.highestOneBit(capacity * 2 - 1) << 1];
+        mask = table.length - 1;
+        Arrays.fill(table, NIL);
+    }
+
+    @Override
+    public void add(Task task) {
+        int id = task.getId();
+        int position = find(id);
+        int slot;
+
+        if (position != NIL) {
+            slot = table[position];
+            unlink(slot);
+        } else {
+            slot = allocate();
+            ids[slot] = id;
+            insert(slot);
+            size++;
+        }
+
+        tasks[slot] = task;
+        linkLast(slot);
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        List<Task> history = new ArrayList<>(size);
+
+        for (int slot = tail; slot != NIL; slot = prev[slot]) {
+            history.add(tasks[slot]);
+        }
+
+        return history;
+    }
+
+    @Override
+    public List<Task> getHistory(int limit) {
+        return collect(tail, limit);
+    }
+
+    @Override
+    public List<Task> getHistoryAfter(int afterId, int limit) {
+        int position = find(afterId);
+
+        return collect(position == NIL ? NIL : prev[table[position]], limit);
+    }
+
+    // ленивый обход ячеек от последнего просмотра к первому; историю нельзя менять, пока идёт обход
+    @Override
+    public Stream<Task> streamHistory() {
+        return IntStream.iterate(tail, slot -> slot != NIL, slot -> prev[slot]).mapToObj(slot -> tasks[slot]);
+    }
+
+    // записывает историю от последнего просмотра к первому в начало буфера и возвращает число записанных задач
+    public int copyHistory(Task[] buffer) {
+        int count = 0;
+
+        for (int slot = tail; slot != NIL && count < buffer.length; slot = prev[slot]) {
+            buffer[count++] = tasks[slot];
+        }
+
+        return count;
+    }
+
+    @Override
+    public void remove(int id) {
+        int position = find(id);
+
+        if (position == NIL) {
+            return;
+        }
+
+        int slot = table[position];
+        delete(position);
+        unlink(slot);
+        tasks[slot] = null;
+        next[slot] = freeHead;
+        freeHead = slot;
+        size--;
+    }
+
+    private List<Task> collect(int from, int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Размер страницы истории не может быть отрицательным");
+        }
+
+        List<Task> page = new ArrayList<>(Math.min(limit, size));
+
+        for (int slot = from; slot != NIL && page.size() < limit; slot = prev[slot]) {
+            page.add(tasks[slot]);
+        }
+
+        return page;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getCapacity() {
+        return tasks.length;
+    }
+
+    private int allocate() {
+        if (freeHead != NIL) {
+            int slot = freeHead;
+            freeHead = next[slot];
+            return slot;
+        }
+
+        if (used < tasks.length) {
+            return used++;
+        }
+
+        int oldest = head;
+        delete(find(ids[oldest]));
+        unlink(oldest);
+        size--;
+        return oldest;
+    }
+
+    private void linkLast(int slot) {
+        prev[slot] = tail;
+        next[slot] = NIL;
+
+        if (tail == NIL) {
+            head = slot;
+        } else {
+            next[tail] = slot;
+        }
+        tail = slot;
+    }
+
+    private void unlink(int slot) {
+        int before = prev[slot];
+        int after = next[slot];
+
+        if (before == NIL) {
+            head = after;
+        } else {
+            next[before] = after;
+        }
+
+        if (after == NIL) {
+            tail = before;
+        } else {
+            prev[after] = before;
+        }
+    }
+
+    private int find(int id) {
+        for (int position = hash(id); table[position] != NIL; position = (position + 1) & mask) {
+            if (ids[table[position]] == id) {
+                return position;
+            }
+        }
+
+        return NIL;
+    }
+
+    private void insert(int slot) {
+        int position = hash(ids[slot]);
+
+        while (table[position] != NIL) {
+            position = (position + 1) & mask;
+        }
+        table[position] = slot;
+    }
+
+    // удаление со сдвигом назад: следующие записи цепочки подтягиваются в дыру, и меток удаления не остаётся
+    private void delete(int position) {
+        int hole = position;
+
+        for (int current = (position + 1) & mask; table[current] != NIL; current = (current + 1) & mask) {
+            int home = hash(ids[table[current]]);
+
+            if (((current - home) & mask) >= ((current - hole) & mask)) {
+                table[hole] = table[current];
+                hole = current;
+            }
+        }
+        table[hole] = NIL;
+    }
+
+    private int hash(int id) {
+        int h = id * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+}
@@ -0,0 +1,87 @@
+package ru.practicum.javakanban.manager;
+
+import ru.practicum.javakanban.model.Epic;
+import ru.practicum.javakanban.model.Subtask;
+import ru.practicum.javakanban.model.Task;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.SortedSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Predicate;
+
+/*
+Асинхронный вариант TaskManager: методы не ждут применения изменения и записи на диск, а сразу возвращают
+будущее. Будущее изменения завершается, когда изменение видно читателям и сохранено согласно политике надёжности
+хранилища; пересечение по времени приходит как ManagerPrioritizeException внутри CompletionException.
+*/
+public interface AsyncTaskManager {
+
+    CompletableFuture<Void> createTask(Task task);
+
+    CompletableFuture<Void> createEpic(Epic epic);
+
+    CompletableFuture<Void> createSubtask(Subtask subtask, int epicId);
+
+    CompletableFuture<Void> updateTask(Task task, Integer id);
+
+    CompletableFuture<Void> updateEpic(Epic epic, Integer id);
+
+    CompletableFuture<Void> updateSubtask(Subtask subtask, Integer id);
+
+    CompletableFuture<List<Task>> getAllTasks();
+
+    CompletableFuture<List<Epic>> getAllEpics();
+
+    CompletableFuture<List<Subtask>> getAllSubtasks();
+
+    CompletableFuture<List<Subtask>> getEpicSubtasks(int id);
+
+    CompletableFuture<Void> deleteAllTasks();
+
+    CompletableFuture<Void> deleteAllEpics();
+
+    CompletableFuture<Void> deleteAllSubtasks();
+
+    CompletableFuture<Void> deleteWhere(Predicate<Task> filter);
+
+    CompletableFuture<Task> getTask(int id);
+
+    CompletableFuture<Epic> getEpic(int id);
+
+    CompletableFuture<Subtask> getSubtask(int id);
+
+    CompletableFuture<Void> deleteTask(int id);
+
+    CompletableFuture<Void> deleteEpic(int id);
+
+    CompletableFuture<Void> deleteSubtask(int id);
+
+    CompletableFuture<List<Task>> getHistory();
+
+    CompletableFuture<List<Task>> getHistory(int limit);
+
+    CompletableFuture<List<Task>> getHistoryAfter(int afterId, int limit);
+
+    CompletableFuture<Void> runInTransaction(TaskBatch batch);
+
+    CompletableFuture<List<Task>> getPrioritizedTasks();
+
+    CompletableFuture<SortedSet<Task>> getTasksStartingBetween(LocalDateTime from, LocalDateTime to);
+
+    CompletableFuture<SortedSet<Task>> getTasksOverlapping(LocalDateTime from, LocalDateTime to);
+
+    CompletableFuture<Optional<LocalDateTime>> findFreeSlot(Duration duration, LocalDateTime from);
+
+    CompletableFuture<List<LocalDateTime>> findFreeSlots(Duration duration, LocalDateTime from, LocalDateTime to,
+                                                         int limit);
+
+    CompletableFuture<Map<Integer, Task>> getTasks();
+
+    CompletableFuture<Map<Integer, Epic>> getEpics();
+
+    CompletableFuture<Map<Integer, Subtask>> getSubtasks();
+}
@@ -0,0 +1,220 @@
+package ru.practicum.javakanban.manager;
+
+import ru.practicum.javakanban.exeptions.ManagerLoadException;
+import ru.practicum.javakanban.exeptions.ManagerSaveException;
+import ru.practicum.javakanban.model.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+Двоичный снимок фиксированной раскладки:
+- заголовок (32 байта): сигнатура, версия, число записей, смещение и длина области строк;
+- записи по 56 байт: id, тип, статус, id эпика, ссылки на имя и описание в области строк, длительность
+  и время начала — секунды (от эпохи для времени) и наносекунды отдельно, поэтому время не округляется;
+- область строк в UTF-8, одинаковые строки хранятся один раз.
+Снимок пишется во временный файл и подменяет прежний атомарным переименованием, так что сбой при записи не
+портит снимок.
+*/
+public class BinarySnapshot {
+    private static final int MAGIC = 0x4B42534E;
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 32;
+    private static final int RECORD_SIZE = 56;
+    private static final int NO_VALUE = Integer.MIN_VALUE;
+    private static final long NO_TIME = Long.MIN_VALUE;
+
+    private static final Status[] STATUSES = Status.values();
+    private static final TaskType[] TYPES = TaskType.values();
+
+    private BinarySnapshot() {
+    }
+
+    public static void write(File file, List<Task> tasks, List<Epic> epics, List<Subtask> subtasks) {
+        List<Task> records = new ArrayList<>(tasks.size() + epics.size() + subtasks.size());
+        records.addAll(tasks);
+        records.addAll(epics);
+        records.addAll(subtasks);
+
+        ByteArrayOutputStream pool = new ByteArrayOutputStream();
+        Map<String, Integer> offsets = new HashMap<>();
+        int[] names = new int[records.size() * 2];
+        int[] descriptions = new int[records.size() * 2];
+
+        for (int i = 0; i < records.size(); i++) {
+            intern(records.get(i).getName(), pool, offsets, names, i);
+            intern(records.get(i).getDescription(), pool, offsets, descriptions, i);
+        }
+
+        long size = HEADER_SIZE + (long) records.size() * RECORD_SIZE + pool.size();
+
+        if (size > Integer.MAX_VALUE) {
+            throw new ManagerSaveException("Снимок слишком велик для записи в " + file.getName());
+        }
+
+        int poolOffset = HEADER_SIZE + records.size() * RECORD_SIZE;
+
+        File temporary = new File(file.getPath() + ".tmp");
+        // буфер в куче, а не отображение файла: отображённый файл на Windows нельзя переименовать
+        ByteBuffer buffer = ByteBuffer.allocate((int) size);
+
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(records.size()).putInt(poolOffset).putInt(pool.size());
+        buffer.position(HEADER_SIZE);
+
+        for (int i = 0; i < records.size(); i++) {
+            Task task = records.get(i);
+            buffer.putInt(task.getId());
+            buffer.put((byte) task.getType().ordinal());
+            buffer.put((byte) task.getStatus().ordinal());
+            buffer.putShort((short) 0);
+            buffer.putInt(task instanceof Subtask subtask ? subtask.getEpicId() : NO_VALUE);
+            buffer.putInt(names[2 * i]).putInt(names[2 * i + 1]);
+            buffer.putInt(descriptions[2 * i]).putInt(descriptions[2 * i + 1]);
+            buffer.putInt(0);
+
+            boolean epic = task.getType() == TaskType.EPIC;
+            Duration duration = epic ? null : task.getDuration();
+            LocalDateTime startTime = epic ? null : task.getStartTime();
+            buffer.putLong(duration == null ? NO_TIME : duration.getSeconds());
+            buffer.putLong(startTime == null ? NO_TIME : startTime.toEpochSecond(ZoneOffset.UTC));
+            buffer.putInt(duration == null ? 0 : duration.getNano());
+            buffer.putInt(startTime == null ? 0 : startTime.getNano());
+        }
+
+        buffer.put(pool.toByteArray());
+        buffer.flip();
+
+        try (FileChannel channel = FileChannel.open(temporary.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Не удалось записать двоичный снимок " + temporary.getName());
+        }
+
+        try {
+            try {
+                Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            throw new ManagerSaveException("Не удалось заменить двоичный снимок " + file.getName());
+        }
+    }
+
+    public static List<Task> read(File file) {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new ManagerLoadException("Двоичный снимок " + file.getName() + " слишком велик");
+            }
+
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                throw new ManagerLoadException("Файл " + file.getName() + " не является двоичным снимком");
+            }
+
+            int count = buffer.getInt(8);
+            int poolOffset = buffer.getInt(12);
+            Map<Integer, String> strings = new HashMap<>();
+            byte[] scratch = new byte[64];
+            List<Task> restored = new ArrayList<>(count);
+
+            for (int i = 0; i < count; i++) {
+                int at = HEADER_SIZE + i * RECORD_SIZE;
+                int id = buffer.getInt(at);
+                TaskType type = TYPES[buffer.get(at + 4)];
+                Status status = STATUSES[buffer.get(at + 5)];
+                int epicId = buffer.getInt(at + 8);
+                String name = string(buffer, poolOffset, buffer.getInt(at + 12), buffer.getInt(at + 16), strings,
+                        scratch);
+                String description = string(buffer, poolOffset, buffer.getInt(at + 20), buffer.getInt(at + 24),
+                        strings, scratch);
+                long duration = buffer.getLong(at + 32);
+                long startTime = buffer.getLong(at + 40);
+                Duration taskDuration = duration == NO_TIME ? null
+                        : Duration.ofSeconds(duration, buffer.getInt(at + 48));
+                LocalDateTime taskStart = startTime == NO_TIME ? null
+                        : LocalDateTime.ofEpochSecond(startTime, buffer.getInt(at + 52), ZoneOffset.UTC);
+
+                restored.add(switch (type) {
+                    case TASK -> new Task(name, description, id, status, taskDuration, taskStart);
+                    case SUBTASK -> new Subtask(name, description, id, status, epicId, taskDuration, taskStart);
+                    case EPIC -> new Epic(name, description, id, status);
+                });
+            }
+
+            return restored;
+        } catch (IOException | IndexOutOfBoundsException | BufferUnderflowException | IllegalArgumentException
+                 | DateTimeException e) {
+            throw new ManagerLoadException("Не удалось прочитать двоичный снимок " + file.getName());
+        }
+    }
+
+    private static void intern(String value, ByteArrayOutputStream pool, Map<String, Integer> offsets,
+                               int[] refs, int index) {
+        if (value == null) {
+            refs[2 * index] = 0;
+            refs[2 * index + 1] = -1;
+            return;
+        }
+
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        Integer offset = offsets.get(value);
+
+        if (offset == null) {
+            offset = pool.size();
+            offsets.put(value, offset);
+            pool.writeBytes(bytes);
+        }
+
+        refs[2 * index] = offset;
+        refs[2 * index + 1] = bytes.length;
+    }
+
+    private static String string(ByteBuffer buffer, int poolOffset, int offset, int length,
+                                 Map<Integer, String> strings, byte[] scratch) {
+        if (length < 0) {
+            return null;
+        }
+
+        // пустая строка не занимает места в области строк и может делить смещение с другой строкой
+        if (length == 0) {
+            return "";
+        }
+
+        String cached = strings.get(offset);
+        if (cached != null) {
+            return cached;
+        }
+
+        byte[] bytes = length <= scratch.length ? scratch : new byte[length];
+        buffer.get(poolOffset + offset, bytes, 0, length);
+        String value = new String(bytes, 0, length, StandardCharsets.UTF_8);
+        strings.put(offset, value);
+
+        return value;
+    }
+}
@@ -0,0 +1,34 @@
+package ru.practicum.javakanban.manager;
+
+public class CompactionPolicy {
+    public static final long DEFAULT_MAX_LOG_BYTES = 8L * 1024 * 1024;
+    public static final int DEFAULT_MAX_LOG_RECORDS = 50_000;
+
+    private final long maxLogBytes;
+    private final int maxLogRecords;
+
+    public CompactionPolicy(long maxLogBytes, int maxLogRecords) {
+        if (maxLogBytes <= 0 || maxLogRecords <= 0) {
+            throw new IllegalArgumentException("Пороги сжатия журнала должны быть положительными");
+        }
+
+        this.maxLogBytes = maxLogBytes;
+        this.maxLogRecords = maxLogRecords;
+    }
+
+    public static CompactionPolicy defaultPolicy() {
+        return new CompactionPolicy(DEFAULT_MAX_LOG_BYTES, DEFAULT_MAX_LOG_RECORDS);
+    }
+
+    public boolean isExceeded(long logBytes, int logRecords) {
+        return logBytes >= maxLogBytes || logRecords >= maxLogRecords;
+    }
+
+    public long getMaxLogBytes() {
+        return maxLogBytes;
+    }
+
+    public int getMaxLogRecords() {
+        return maxLogRecords;
+    }
+}
@@ -0,0 +1,142 @@
+package ru.practicum.javakanban.manager;
+
+import ru.practicum.javakanban.model.Task;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+История для параллельных читателей. Просмотр только кладёт событие в неблокирующую очередь (много писателей,
+один разборщик) и никогда не ждёт блокировку. Упорядоченная история без повторов хранится в обёрнутом
+менеджере истории и догоняет очередь лениво: при getHistory и remove под блокировкой, а при накоплении
+DRAIN_THRESHOLD событий — только если блокировка свободна. Удаления идут через ту же очередь, поэтому порядок
+просмотров и удалений сохраняется, а getHistory видит все просмотры, сделанные до его вызова. Очередь может
+разобрать любой поток, поэтому вместе с просмотром и удалением запоминается контекст вызвавшего (callerContext
+обёрнутой истории, например сессия пользователя или его пакет), и запись выполняется внутри него.
+*/
+public class ConcurrentHistoryManager implements HistoryManager {
+    private static final int DRAIN_THRESHOLD = 1024;
+
+    private final HistoryManager historyManager;
+    private final Queue<Event> events = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final ReentrantLock drainLock = new ReentrantLock();
+
+    // task == null означает удаление задачи с removedId
+    private record Event(Task task, int removedId, Executor context) {
+    }
+
+    public ConcurrentHistoryManager(HistoryManager historyManager) {
+        this.historyManager = historyManager;
+    }
+
+    @Override
+    public void add(Task task) {
+        record(new Event(task, 0, historyManager.callerContext()));
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        drainLock.lock();
+        try {
+            drain();
+            return historyManager.getHistory();
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    @Override
+    public List<Task> getHistory(int limit) {
+        drainLock.lock();
+        try {
+            drain();
+            return historyManager.getHistory(limit);
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    @Override
+    public List<Task> getHistoryAfter(int afterId, int limit) {
+        drainLock.lock();
+        try {
+            drain();
+            return historyManager.getHistoryAfter(afterId, limit);
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    @Override
+    public void remove(int id) {
+        record(new Event(null, id, historyManager.callerContext()));
+    }
+
+    @Override
+    public Executor callerContext() {
+        return historyManager.callerContext();
+    }
+
+    // точка отката и сам откат учитывают все события, записанные до них
+    @Override
+    public Checkpoint checkpoint() {
+        drainLock.lock();
+        try {
+            drain();
+            Checkpoint checkpoint = historyManager.checkpoint();
+
+            return new Checkpoint() {
+                @Override
+                public void rollback() {
+                    drainLock.lock();
+                    try {
+                        drain();
+                        checkpoint.rollback();
+                    } finally {
+                        drainLock.unlock();
+                    }
+                }
+
+                @Override
+                public void release() {
+                    checkpoint.release();
+                }
+            };
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    private void record(Event event) {
+        events.offer(event);
+
+        if (pending.incrementAndGet() >= DRAIN_THRESHOLD && drainLock.tryLock()) {
+            try {
+                drain();
+            } finally {
+                drainLock.unlock();
+            }
+        }
+    }
+
+    private void drain() {
+        Event event;
+
+        while ((event = events.poll()) != null) {
+            pending.decrementAndGet();
+
+            if (event.task() != null) {
+                Task task = event.task();
+                event.context().execute(() -> historyManager.add(task));
+            } else {
+                int id = event.removedId();
+                event.context().execute(() -> historyManager.remove(id));
+            }
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package ru.practicum.javakanban.manager;
+
+import ru.practicum.javakanban.exeptions.ManagerPrioritizeException;
+import ru.practicum.javakanban.model.Epic;
+import ru.practicum.javakanban.model.Subtask;
+import ru.practicum.javakanban.model.Task;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/*
+Потокобезопасная обёртка над любым менеджером с одной общей блокировкой чтения-записи. Проверка пересечений
+и вставка в приоритизацию, пересчёт эпика и запись в файл должны выполняться как одно целое, поэтому все изменения
+идут строго по очереди под исключительной блокировкой записи, даже если затрагивают разные эпики, а чтения
+выполняются параллельно под блокировкой чтения. Подходит для нагрузки в основном на чтение и для менеджеров,
+которые нельзя разделить на части (например, файлового); для параллельных писателей есть StripedTaskManager
+(Managers.getStriped) с блокировками по эпикам и отдельной защитой расписания.
+Просмотры задач меняют историю, поэтому у обёрнутого менеджера история должна быть потокобезопасной
+(см. Managers.getConcurrent). Карты, списки приоритизации и окна возвращаются копиями, снятыми под блокировкой,
+а не живыми представлениями.
+*/
+public class ConcurrentTaskManager implements TaskManager {
+    private final TaskManager taskManager;
+    private final Lock readLock;
+    private final Lock writeLock;
+
+    public ConcurrentTaskManager(TaskManager taskManager) {
+        ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        this.taskManager = taskManager;
+        this.readLock = lock.readLock();
+        this.writeLock = lock.writeLock();
+    }
+
+    @Override
+    public void createTask(Task task) throws ManagerPrioritizeException {
+        writeLock.lock();
+        try {
+            taskManager.createTask(task);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void createEpic(Epic epic) {
+        write(() -> taskManager.createEpic(epic));
+    }
+
+    @Override
+    public void createSubtask(Subtask subtask, int epicId) throws ManagerPrioritizeException {
+        writeLock.lock();
+        try {
+            taskManager.createSubtask(subtask, epicId);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void updateTask(Task task, Integer id) throws ManagerPrioritizeException {
+        writeLock.lock();
+        try {
+            taskManager.updateTask(task, id);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void updateEpic(Epic epic, Integer id) {
+        write(() -> taskManager.updateEpic(epic, id));
+    }
+
+    @Override
+    public void updateSubtask(Subtask subtask, Integer id) throws ManagerPrioritizeException {
+        writeLock.lock();
+        try {
+            taskManager.updateSubtask(subtask, id);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public List<Task> getAllTasks() {
+        return read(taskManager::getAllTasks);
+    }
+
+    @Override
+    public List<Epic> getAllEpics() {
+        return read(taskManager::getAllEpics);
+    }
+
+    @Override
+    public List<Subtask> getAllSubtasks() {
+        return read(taskManager::getAllSubtasks);
+    }
+
+    @Override
+    public List<Subtask> getEpicSubtasks(int id) {
+        // эпик отдаёт живое представление, поэтому наружу уходит копия, снятая под блокировкой
+        return read(() -> {
+            List<Subtask> epicSubtasks = taskManager.getEpicSubtasks(id);
+            return epicSubtasks == null ? null : List.copyOf(epicSubtasks);
+        });
+    }
+
+    @Override
+    public void deleteAllTasks() {
+        write(taskManager::deleteAllTasks);
+    }
+
+    @Override
+    public void deleteAllEpics() {
+        write(taskManager::deleteAllEpics);
+    }
+
+    @Override
+    public void deleteAllSubtasks() {
+        write(taskManager::deleteAllSubtasks);
+    }
+
+    @Override
+    public void deleteWhere(Predicate<Task> filter) {
+        write(() -> taskManager.deleteWhere(filter));
+    }
+
+    @Override
+    public Task getTask(int id) {
+        return read(() -> taskManager.getTask(id));
+    }
+
+    @Override
+    public Epic getEpic(int id) {
+        return read(() -> taskManager.getEpic(id));
+    }
+
+    @Override
+    public Subtask getSubtask(int id) {
+        return read(() -> taskManager.getSubtask(id));
+    }
+
+    @Override
+    public void deleteTask(int id) {
+        write(() -> taskManager.deleteTask(id));
+    }
+
+    @Override
+    public void deleteEpic(int id) {
+        write(() -> taskManager.deleteEpic(id));
+    }
+
+    @Override
+    public void deleteSubtask(int id) {
+        write(() -> taskManager.deleteSubtask(id));
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        return read(taskManager::getHistory);
+    }
+
+    @Override
+    public List<Task> getHistory(int limit) {
+        return read(() -> taskManager.getHistory(limit));
+    }
+
+    @Override
+    public List<Task> getHistoryAfter(int afterId, int limit) {
+        return read(() -> taskManager.getHistoryAfter(afterId, limit));
+    }
+
+    // пакет выполняется целиком под блокировкой записи, читатели видят состояние только до или после него
+    @Override
+    public void runInTransaction(TaskBatch batch) throws ManagerPrioritizeException {
+        writeLock.lock();
+        try {
+            taskManager.runInTransaction(batch);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasks() {
+        return read(taskManager::getPrioritizedTasks);
+    }
+
+    @Override
+    public SortedSet<Task> getTasksStartingBetween(LocalDateTime from, LocalDateTime to) {
+        return read(() -> Collections.unmodifiableSortedSet(new TreeSet<>(
+                taskManager.getTasksStartingBetween(from, to))));
+    }
+
+    @Override
+    public SortedSet<Task> getTasksOverlapping(LocalDateTime from, LocalDateTime to) {
+        return read(() -> Collections.unmodifiableSortedSet(new TreeSet<>(
+                taskManager.getTasksOverlapping(from, to))));
+    }
+
+    @Override
+    public Optional<LocalDateTime> findFreeSlot(Duration duration, LocalDateTime from) {
+        return read(() -> taskManager.findFreeSlot(duration, from));
+    }
+
+    @Override
+    public List<LocalDateTime> findFreeSlots(Duration duration, LocalDateTime from, LocalDateTime to, int limit) {
+        return read(() -> taskManager.findFreeSlots(duration, from, to, limit));
+    }
+
+    @Override
+    public Map<Integer, Task> getTasks() {
+        return read(() -> Collections.unmodifiableMap(new HashMap<>(taskManager.getTasks())));
+    }
+
+    @Override
+    public Map<Integer, Epic> getEpics() {
+        return read(() -> Collections.unmodifiableMap(new HashMap<>(taskManager.getEpics())));
+    }
+
+    @Override
+    public Map<Integer, Subtask> getSubtasks() {
+        return read(() -> Collections.unmodifiableMap(new HashMap<>(taskManager.getSubtasks())));
+    }
+
+    private <T> T read(Supplier<T> action) {
+        readLock.lock();
+        try {
+            return action.get();
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    private void write(Runnable action) {
+        writeLock.lock();
+        try {
+            action.run();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+}
@@ -0,0 +1,352 @@
+package ru.practicum.javakanban.manager;
+
+import ru.practicum.javakanban.exeptions.ManagerPrioritizeException;
+import ru.practicum.javakanban.model.Epic;
+import ru.practicum.javakanban.model.Subtask;
+import ru.practicum.javakanban.model.Task;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+
+/*
+Менеджер для нагрузки, где чтений намного больше, чем изменений. Изменения выполняются по очереди под блокировкой
+над обычными картами, которые запоминают id изменённых записей. После каждого внешнего вызова только эти записи
+публикуются в PublishedState. Читатели обращаются к опубликованному состоянию без блокировок и никогда не ждут
+писателя, а писатель не ждёт читателей. Каждая запись видна читателю целиком, но изменения одного вызова
+появляются по очереди, а не одновременно. Поток, который сам выполняет изменение (например, пакет
+runInTransaction), читает текущее состояние, поэтому видит свои записи. История потокобезопасна сама по себе,
+поэтому просмотр задачи тоже не блокирует изменения.
+*/
+public class CopyOnWriteTaskManager extends InMemoryTaskManager {
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final ChangeTrackingMap<Task> tasks;
+    private final ChangeTrackingMap<Epic> epics;
+    private final ChangeTrackingMap<Subtask> subtasks;
+    private final PublishedState published = new PublishedState();
+
+    @FunctionalInterface
+    private interface Mutation {
+        void run() throws ManagerPrioritizeException;
+    }
+
+    public CopyOnWriteTaskManager(HistoryManager historyManager) {
+        this(new ConcurrentHistoryManager(historyManager), new ChangeTrackingMap<>(), new ChangeTrackingMap<>(),
+                new ChangeTrackingMap<>());
+    }
+
+    private CopyOnWriteTaskManager(HistoryManager historyManager, ChangeTrackingMap<Task> tasks,
+                                   ChangeTrackingMap<Epic> epics, ChangeTrackingMap<Subtask> subtasks) {
+        super(historyManager, tasks, epics, subtasks);
+        this.tasks = tasks;
+        this.epics = epics;
+        this.subtasks = subtasks;
+    }
+
+    @Override
+    public void createTask(Task task) throws ManagerPrioritizeException {
+        write(() -> super.createTask(task));
+    }
+
+    @Override
+    public void createEpic(Epic epic) {
+        writeUnchecked(() -> super.createEpic(epic));
+    }
+
+    @Override
+    public void createSubtask(Subtask subtask, int epicId) throws ManagerPrioritizeException {
+        write(() -> super.createSubtask(subtask, epicId));
+    }
+
+    @Override
+    public void updateTask(Task task, Integer id) throws ManagerPrioritizeException {
+        write(() -> super.updateTask(task, id));
+    }
+
+    @Override
+    public void updateEpic(Epic epic, Integer id) {
+        writeUnchecked(() -> super.updateEpic(epic, id));
+    }
+
+    @Override
+    public void updateSubtask(Subtask subtask, Integer id) throws ManagerPrioritizeException {
+        write(() -> super.updateSubtask(subtask, id));
+    }
+
+    @Override
+    public void deleteAllTasks() {
+        writeUnchecked(super::deleteAllTasks);
+    }
+
+    @Override
+    public void deleteAllEpics() {
+        writeUnchecked(super::deleteAllEpics);
+    }
+
+    @Override
+    public void deleteAllSubtasks() {
+        // статус пересчитывается и у эпиков без подзадач, поэтому публикуются все эпики
+        writeUnchecked(() -> {
+            super.deleteAllSubtasks();
+            epics.markAllChanged();
+        });
+    }
+
+    @Override
+    public void deleteWhere(Predicate<Task> filter) {
+        writeUnchecked(() -> super.deleteWhere(filter));
+    }
+
+    @Override
+    public void deleteTask(int id) {
+        writeUnchecked(() -> super.deleteTask(id));
+    }
+
+    @Override
+    public void deleteEpic(int id) {
+        writeUnchecked(() -> super.deleteEpic(id));
+    }
+
+    @Override
+    public void deleteSubtask(int id) {
+        writeUnchecked(() -> super.deleteSubtask(id));
+    }
+
+    @Override
+    public void runInTransaction(TaskBatch batch) throws ManagerPrioritizeException {
+        write(() -> super.runInTransaction(batch));
+    }
+
+    @Override
+    public List<Task> getAllTasks() {
+        return isWriting() ? super.getAllTasks() : new ArrayList<>(published.getTasks().values());
+    }
+
+    @Override
+    public List<Epic> getAllEpics() {
+        return isWriting() ? super.getAllEpics() : new ArrayList<>(published.getEpics().values());
+    }
+
+    @Override
+    public List<Subtask> getAllSubtasks() {
+        return isWriting() ? super.getAllSubtasks() : new ArrayList<>(published.getSubtasks().values());
+    }
+
+    @Override
+    public List<Subtask> getEpicSubtasks(int id) {
+        if (isWriting()) {
+            return super.getEpicSubtasks(id);
+        }
+
+        Epic epic = published.getEpics().get(id);
+        return epic == null ? null : epic.getSubtasks();
+    }
+
+    @Override
+    public Task getTask(int id) {
+        return isWriting() ? super.getTask(id) : viewed(published.getTasks().get(id));
+    }
+
+    @Override
+    public Epic getEpic(int id) {
+        return isWriting() ? super.getEpic(id) : viewed(published.getEpics().get(id));
+    }
+
+    @Override
+    public Subtask getSubtask(int id) {
+        return isWriting() ? super.getSubtask(id) : viewed(published.getSubtasks().get(id));
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasks() {
+        return isWriting() ? super.getPrioritizedTasks() : List.copyOf(published.getSchedule());
+    }
+
+    @Override
+    public SortedSet<Task> getTasksStartingBetween(LocalDateTime from, LocalDateTime to) {
+        if (isWriting()) {
+            return super.getTasksStartingBetween(from, to);
+        }
+
+        return startingBetween(published.getSchedule(), from, to);
+    }
+
+    @Override
+    public SortedSet<Task> getTasksOverlapping(LocalDateTime from, LocalDateTime to) {
+        if (isWriting()) {
+            return super.getTasksOverlapping(from, to);
+        }
+
+        return overlapping(published.getSchedule(), from, to);
+    }
+
+    @Override
+    public Optional<LocalDateTime> findFreeSlot(Duration duration, LocalDateTime from) {
+        if (isWriting()) {
+            return super.findFreeSlot(duration, from);
+        }
+
+        return collectFreeSlots(published.getSchedule(), duration, from, null, 1).stream().findFirst();
+    }
+
+    @Override
+    public List<LocalDateTime> findFreeSlots(Duration duration, LocalDateTime from, LocalDateTime to, int limit) {
+        if (isWriting()) {
+            return super.findFreeSlots(duration, from, to, limit);
+        }
+
+        return collectFreeSlots(published.getSchedule(), duration, from, to, limit);
+    }
+
+    @Override
+    public Map<Integer, Task> getTasks() {
+        return isWriting() ? super.getTasks() : published.getTasks();
+    }
+
+    @Override
+    public Map<Integer, Epic> getEpics() {
+        return isWriting() ? super.getEpics() : published.getEpics();
+    }
+
+    @Override
+    public Map<Integer, Subtask> getSubtasks() {
+        return isWriting() ? super.getSubtasks() : published.getSubtasks();
+    }
+
+    // поток, держащий блокировку записи, находится внутри изменения и читает текущее состояние
+    private boolean isWriting() {
+        return writeLock.isHeldByCurrentThread();
+    }
+
+    private <T extends Task> T viewed(T task) {
+        if (task != null) {
+            getHistoryManager().add(task);
+        }
+
+        return task;
+    }
+
+    // вложенные вызовы (например, updateEpic внутри createSubtask или операции пакета) публикуют снимок один раз
+    private void write(Mutation mutation) throws ManagerPrioritizeException {
+        writeLock.lock();
+        try {
+            mutation.run();
+        } finally {
+            if (writeLock.getHoldCount() == 1) {
+                publish();
+            }
+            writeLock.unlock();
+        }
+    }
+
+    private void writeUnchecked(Runnable mutation) {
+        writeLock.lock();
+        try {
+            mutation.run();
+        } finally {
+            if (writeLock.getHoldCount() == 1) {
+                publish();
+            }
+            writeLock.unlock();
+        }
+    }
+
+    private void publish() {
+        published.publish(tasks.drainChanges(), epics.drainChanges(), subtasks.drainChanges(), tasks, epics,
+                subtasks);
+    }
+
+    /*
+    Карта писателя, запоминающая id добавленных, заменённых и удалённых записей, в том числе удалённых через
+    итераторы представлений. Записи отдаются только на чтение, чтобы значение нельзя было подменить мимо учёта.
+    */
+    private static final class ChangeTrackingMap<V> extends AbstractMap<Integer, V> {
+        private final Map<Integer, V> map = new HashMap<>();
+        private Set<Integer> changed = new HashSet<>();
+        private final Set<Entry<Integer, V>> entries = new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<Integer, V>> iterator() {
+                Iterator<Entry<Integer, V>> iterator = map.entrySet().iterator();
+
+                return new Iterator<>() {
+                    private Integer current;
+
+                    @Override
+                    public boolean hasNext() {
+                        return iterator.hasNext();
+                    }
+
+                    @Override
+                    public Entry<Integer, V> next() {
+                        Entry<Integer, V> entry = iterator.next();
+                        current = entry.getKey();
+                        return new SimpleImmutableEntry<>(entry);
+                    }
+
+                    @Override
+                    public void remove() {
+                        iterator.remove();
+                        changed.add(current);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return map.size();
+            }
+        };
+
+        @Override
+        public V get(Object key) {
+            return map.get(key);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return map.containsKey(key);
+        }
+
+        @Override
+        public V put(Integer key, V value) {
+            changed.add(key);
+            return map.put(key, value);
+        }
+
+        @Override
+        public V remove(Object key) {
+            if (map.containsKey(key)) {
+                changed.add((Integer) key);
+            }
+            return map.remove(key);
+        }
+
+        @Override
+        public void clear() {
+            changed.addAll(map.keySet());
+            map.clear();
+        }
+
+        @Override
+        public int size() {
+            return map.size();
+        }
+
+        @Override
+        public Set<Entry<Integer, V>> entrySet() {
+            return entries;
+        }
+
+        void markAllChanged() {
+            changed.addAll(map.keySet());
+        }
+
+        Set<Integer> drainChanges() {
+            Set<Integer> drained = changed;
+            changed = new HashSet<>();
+            return drained;
+        }
+    }
+}
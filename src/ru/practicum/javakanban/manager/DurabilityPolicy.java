@@ -0,0 +1,61 @@
+package ru.practicum.javakanban.manager;
+
+/*
+Когда фоновая запись журнала сбрасывает данные на диск (fsync):
+- everyWrite: после каждой пачки записей, накопившейся в очереди, пока шёл предыдущий сброс;
+- everyMillis: не реже, чем раз в заданное число миллисекунд;
+- everyRecords: после того как накопилось заданное число записей.
+*/
+public class DurabilityPolicy {
+    private final int syncEveryRecords;
+    private final long syncEveryMillis;
+
+    private DurabilityPolicy(int syncEveryRecords, long syncEveryMillis) {
+        this.syncEveryRecords = syncEveryRecords;
+        this.syncEveryMillis = syncEveryMillis;
+    }
+
+    public static DurabilityPolicy everyWrite() {
+        return new DurabilityPolicy(1, 0);
+    }
+
+    public static DurabilityPolicy everyMillis(long millis) {
+        if (millis <= 0) {
+            throw new IllegalArgumentException("Интервал сброса журнала должен быть положительным");
+        }
+
+        return new DurabilityPolicy(0, millis);
+    }
+
+    public static DurabilityPolicy everyRecords(int records) {
+        if (records <= 0) {
+            throw new IllegalArgumentException("Число записей между сбросами журнала должно быть положительным");
+        }
+
+        return new DurabilityPolicy(records, 0);
+    }
+
+    public boolean isSyncRequired(int unsyncedRecords, long millisSinceSync) {
+        if (unsyncedRecords == 0) {
+            return false;
+        }
+
+        if (syncEveryRecords > 0) {
+            return unsyncedRecords >= syncEveryRecords;
+        }
+
+        return millisSinceSync >= syncEveryMillis;
+    }
+
+    public boolean isTimed() {
+        return syncEveryMillis > 0;
+    }
+
+    public int getSyncEveryRecords() {
+        return syncEveryRecords;
+    }
+
+    public long getSyncEveryMillis() {
+        return syncEveryMillis;
+    }
+}
@@ -0,0 +1,234 @@
+package ru.practicum.javakanban.manager;
+
+import ru.practicum.javakanban.model.Epic;
+import ru.practicum.javakanban.model.Subtask;
+import ru.practicum.javakanban.model.Task;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.SortedSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/*
+AsyncTaskManager поверх EventLoopTaskManager. Изменения и сохранение в файл выполняет поток цикла, поэтому
+вызывающий поток не ждёт ни блокировок, ни диска. Для FileBackedTaskManager будущее изменения дополнительно
+ждёт записи журнала, сделанной этим изменением (getLastWrite), то есть сброса на диск по DurabilityPolicy;
+с политикой everyRecords будущее завершится, когда наберётся пачка или будет вызван flush. Такие будущие
+завершаются в потоке записи журнала, поэтому тяжёлые продолжения лучше вешать через *Async-методы.
+Чтения отвечают сразу из опубликованного состояния.
+*/
+public class EventLoopAsyncTaskManager implements AsyncTaskManager, AutoCloseable {
+    private final TaskManager taskManager;
+    private final EventLoopTaskManager eventLoop;
+
+    public EventLoopAsyncTaskManager(TaskManager taskManager) {
+        this.taskManager = taskManager;
+        this.eventLoop = new EventLoopTaskManager(taskManager);
+    }
+
+    @Override
+    public CompletableFuture<Void> createTask(Task task) {
+        return change(taskManager -> taskManager.createTask(task));
+    }
+
+    @Override
+    public CompletableFuture<Void> createEpic(Epic epic) {
+        return change(taskManager -> taskManager.createEpic(epic));
+    }
+
+    @Override
+    public CompletableFuture<Void> createSubtask(Subtask subtask, int epicId) {
+        return change(taskManager -> taskManager.createSubtask(subtask, epicId));
+    }
+
+    @Override
+    public CompletableFuture<Void> updateTask(Task task, Integer id) {
+        return change(taskManager -> taskManager.updateTask(task, id));
+    }
+
+    @Override
+    public CompletableFuture<Void> updateEpic(Epic epic, Integer id) {
+        return change(taskManager -> taskManager.updateEpic(epic, id));
+    }
+
+    @Override
+    public CompletableFuture<Void> updateSubtask(Subtask subtask, Integer id) {
+        return change(taskManager -> taskManager.updateSubtask(subtask, id));
+    }
+
+    @Override
+    public CompletableFuture<List<Task>> getAllTasks() {
+        return read(eventLoop::getAllTasks);
+    }
+
+    @Override
+    public CompletableFuture<List<Epic>> getAllEpics() {
+        return read(eventLoop::getAllEpics);
+    }
+
+    @Override
+    public CompletableFuture<List<Subtask>> getAllSubtasks() {
+        return read(eventLoop::getAllSubtasks);
+    }
+
+    @Override
+    public CompletableFuture<List<Subtask>> getEpicSubtasks(int id) {
+        return read(() -> eventLoop.getEpicSubtasks(id));
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteAllTasks() {
+        return change(TaskManager::deleteAllTasks);
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteAllEpics() {
+        return change(TaskManager::deleteAllEpics);
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteAllSubtasks() {
+        return change(TaskManager::deleteAllSubtasks);
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteWhere(Predicate<Task> filter) {
+        return change(taskManager -> taskManager.deleteWhere(filter));
+    }
+
+    @Override
+    public CompletableFuture<Task> getTask(int id) {
+        return read(() -> eventLoop.getTask(id));
+    }
+
+    @Override
+    public CompletableFuture<Epic> getEpic(int id) {
+        return read(() -> eventLoop.getEpic(id));
+    }
+
+    @Override
+    public CompletableFuture<Subtask> getSubtask(int id) {
+        return read(() -> eventLoop.getSubtask(id));
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteTask(int id) {
+        return change(taskManager -> taskManager.deleteTask(id));
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteEpic(int id) {
+        return change(taskManager -> taskManager.deleteEpic(id));
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteSubtask(int id) {
+        return change(taskManager -> taskManager.deleteSubtask(id));
+    }
+
+    @Override
+    public CompletableFuture<List<Task>> getHistory() {
+        return eventLoop.query(TaskManager::getHistory);
+    }
+
+    @Override
+    public CompletableFuture<List<Task>> getHistory(int limit) {
+        return eventLoop.query(taskManager -> taskManager.getHistory(limit));
+    }
+
+    @Override
+    public CompletableFuture<List<Task>> getHistoryAfter(int afterId, int limit) {
+        return eventLoop.query(taskManager -> taskManager.getHistoryAfter(afterId, limit));
+    }
+
+    @Override
+    public CompletableFuture<Void> runInTransaction(TaskBatch batch) {
+        return change(taskManager -> taskManager.runInTransaction(batch));
+    }
+
+    @Override
+    public CompletableFuture<List<Task>> getPrioritizedTasks() {
+        return read(eventLoop::getPrioritizedTasks);
+    }
+
+    @Override
+    public CompletableFuture<SortedSet<Task>> getTasksStartingBetween(LocalDateTime from, LocalDateTime to) {
+        return read(() -> eventLoop.getTasksStartingBetween(from, to));
+    }
+
+    @Override
+    public CompletableFuture<SortedSet<Task>> getTasksOverlapping(LocalDateTime from, LocalDateTime to) {
+        return read(() -> eventLoop.getTasksOverlapping(from, to));
+    }
+
+    @Override
+    public CompletableFuture<Optional<LocalDateTime>> findFreeSlot(Duration duration, LocalDateTime from) {
+        return read(() -> eventLoop.findFreeSlot(duration, from));
+    }
+
+    @Override
+    public CompletableFuture<List<LocalDateTime>> findFreeSlots(Duration duration, LocalDateTime from,
+                                                                LocalDateTime to, int limit) {
+        return read(() -> eventLoop.findFreeSlots(duration, from, to, limit));
+    }
+
+    @Override
+    public CompletableFuture<Map<Integer, Task>> getTasks() {
+        return read(eventLoop::getTasks);
+    }
+
+    @Override
+    public CompletableFuture<Map<Integer, Epic>> getEpics() {
+        return read(eventLoop::getEpics);
+    }
+
+    @Override
+    public CompletableFuture<Map<Integer, Subtask>> getSubtasks() {
+        return read(eventLoop::getSubtasks);
+    }
+
+    // доводит до диска всё уже принятое, не дожидаясь порога политики надёжности
+    public CompletableFuture<Void> flush() {
+        return eventLoop.submit(taskManager -> durability(true)).thenCompose(written -> written);
+    }
+
+    @Override
+    public void close() {
+        eventLoop.close();
+
+        if (taskManager instanceof FileBackedTaskManager fileBacked) {
+            fileBacked.close();
+        }
+    }
+
+    private CompletableFuture<Void> change(TaskBatch change) {
+        return eventLoop.submit(taskManager -> {
+            change.run(taskManager);
+            return durability(false);
+        }).thenCompose(written -> written);
+    }
+
+    // ошибки аргументов запроса приходят в будущем, как и ошибки изменений
+    private static <T> CompletableFuture<T> read(Supplier<T> query) {
+        try {
+            return CompletableFuture.completedFuture(query.get());
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    // вызывается в потоке цикла сразу после изменения, поэтому последняя запись журнала — запись этого изменения;
+    // операция цикла получает обёртку менеджера, поэтому файл проверяется у самого обёрнутого менеджера
+    private CompletableFuture<Void> durability(boolean force) {
+        if (taskManager instanceof FileBackedTaskManager fileBacked) {
+            return force ? fileBacked.flush() : fileBacked.getLastWrite();
+        }
+
+        return CompletableFuture.completedFuture(null);
+    }
+}
@@ -0,0 +1,718 @@
+package ru.practicum.javakanban.manager;
+
+import ru.practicum.javakanban.exeptions.ManagerPrioritizeException;
+import ru.practicum.javakanban.model.Epic;
+import ru.practicum.javakanban.model.Subtask;
+import ru.practicum.javakanban.model.Task;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+
+/*
+Менеджер с одним владельцем: все изменения обёрнутого менеджера выполняет единственный поток цикла событий.
+Писатели кладут операции в ограниченную очередь и получают CompletableFuture, поток забирает из очереди сразу
+пачку операций, применяет их по порядку и, если в пачке были изменения, один раз публикует записи, которые они
+затронули, после чего завершает их результаты. Операции получают обёртку менеджера, запоминающую id изменённых
+записей, поэтому публикация стоит столько, сколько записей изменилось, а не размер всей доски; эпики публикуются
+копиями, которые поток цикла уже не меняет (см. PublishedState). Блокировок между писателями нет, а при
+заполненной очереди писатели ждут свободного места. Чтения обращаются к опубликованному состоянию и никогда
+не ждут; каждая запись видна целиком, но изменения одной пачки появляются по очереди. Просмотр задачи кладёт отметку
+в отдельную неограниченную очередь, которую цикл разбирает перед каждой пачкой, поэтому getHistory, который тоже
+выполняется в цикле, видит все свои предыдущие просмотры. Синхронные методы TaskManager ждут результата и удобны
+для виртуальных потоков. Обёрнутый менеджер нельзя использовать напрямую. После close новые операции сразу
+завершаются ошибкой, а уже принятые выполняются до остановки цикла. Операции и просмотры выполняются внутри
+контекста истории вызывающего потока (callerContext), поэтому, например, попадают в сессию его пользователя.
+*/
+public class EventLoopTaskManager implements TaskManager, AutoCloseable {
+    public static final int DEFAULT_QUEUE_CAPACITY = 1024;
+    public static final int DEFAULT_MAX_BATCH = 256;
+
+    private final TaskManager taskManager;
+    private final ChangeRecorder recorder;
+    private final PublishedState published = new PublishedState();
+    private final BlockingQueue<Command<?>> queue;
+    private final int maxBatch;
+    private final Thread loop;
+    private final Queue<Runnable> views = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean viewsScheduled = new AtomicBoolean();
+    // submit кладёт операции под блокировкой чтения, а close меняет флаг под блокировкой записи, поэтому после
+    // остановки в очередь ничего не попадёт
+    private final ReentrantReadWriteLock closeLock = new ReentrantReadWriteLock();
+    private volatile boolean closed;
+
+    private record Command<T>(TaskOperation<T> operation, boolean changing, Executor context,
+                              CompletableFuture<T> result) {
+        // результат запоминается и отдаётся только после публикации снимка с этим изменением; любая ошибка,
+        // включая Error, достаётся вызывающему, а цикл продолжает работу
+        private Runnable apply(TaskManager taskManager) {
+            List<Runnable> completion = new ArrayList<>(1);
+
+            try {
+                context.execute(() -> completion.add(run(taskManager)));
+                return completion.getFirst();
+            } catch (Throwable e) {
+                return () -> result.completeExceptionally(e);
+            }
+        }
+
+        private Runnable run(TaskManager taskManager) {
+            try {
+                T value = operation.apply(taskManager);
+                return () -> result.complete(value);
+            } catch (Throwable e) {
+                return () -> result.completeExceptionally(e);
+            }
+        }
+    }
+
+    public EventLoopTaskManager(TaskManager taskManager) {
+        this(taskManager, DEFAULT_QUEUE_CAPACITY, DEFAULT_MAX_BATCH);
+    }
+
+    public EventLoopTaskManager(TaskManager taskManager, int queueCapacity, int maxBatch) {
+        if (queueCapacity <= 0 || maxBatch <= 0) {
+            throw new IllegalArgumentException("Размер очереди и пачки должен быть положительным");
+        }
+
+        this.taskManager = taskManager;
+        this.recorder = new ChangeRecorder(taskManager);
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.maxBatch = maxBatch;
+        recorder.recordAll();
+        publish();
+        this.loop = Thread.ofPlatform().name("task-manager-loop").daemon().start(this::runLoop);
+    }
+
+    // операция выполняется в потоке цикла над обёрнутым менеджером (через обёртку, запоминающую изменения);
+    // вызов из самого цикла выполняется сразу
+    public <T> CompletableFuture<T> submit(TaskOperation<T> operation) {
+        return submit(operation, true);
+    }
+
+    // операция только читает обёрнутый менеджер (например, историю), после неё снимок не публикуется
+    public <T> CompletableFuture<T> query(TaskOperation<T> operation) {
+        return submit(operation, false);
+    }
+
+    private <T> CompletableFuture<T> submit(TaskOperation<T> operation, boolean changing) {
+        Command<T> command = new Command<>(operation, changing, callerContext(), new CompletableFuture<>());
+
+        if (Thread.currentThread() == loop) {
+            command.apply(recorder).run();
+            return command.result();
+        }
+
+        closeLock.readLock().lock();
+        try {
+            if (closed) {
+                command.result().completeExceptionally(new IllegalStateException("Менеджер остановлен"));
+            } else {
+                queue.put(command);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            command.result().completeExceptionally(e);
+        } finally {
+            closeLock.readLock().unlock();
+        }
+
+        return command.result();
+    }
+
+    @Override
+    public void createTask(Task task) throws ManagerPrioritizeException {
+        await(submit(taskManager -> {
+            taskManager.createTask(task);
+            return null;
+        }));
+    }
+
+    @Override
+    public void createEpic(Epic epic) {
+        awaitUnchecked(submit(taskManager -> {
+            taskManager.createEpic(epic);
+            return null;
+        }));
+    }
+
+    @Override
+    public void createSubtask(Subtask subtask, int epicId) throws ManagerPrioritizeException {
+        await(submit(taskManager -> {
+            taskManager.createSubtask(subtask, epicId);
+            return null;
+        }));
+    }
+
+    @Override
+    public void updateTask(Task task, Integer id) throws ManagerPrioritizeException {
+        await(submit(taskManager -> {
+            taskManager.updateTask(task, id);
+            return null;
+        }));
+    }
+
+    @Override
+    public void updateEpic(Epic epic, Integer id) {
+        awaitUnchecked(submit(taskManager -> {
+            taskManager.updateEpic(epic, id);
+            return null;
+        }));
+    }
+
+    @Override
+    public void updateSubtask(Subtask subtask, Integer id) throws ManagerPrioritizeException {
+        await(submit(taskManager -> {
+            taskManager.updateSubtask(subtask, id);
+            return null;
+        }));
+    }
+
+    @Override
+    public List<Task> getAllTasks() {
+        return new ArrayList<>(published.getTasks().values());
+    }
+
+    @Override
+    public List<Epic> getAllEpics() {
+        return new ArrayList<>(published.getEpics().values());
+    }
+
+    @Override
+    public List<Subtask> getAllSubtasks() {
+        return new ArrayList<>(published.getSubtasks().values());
+    }
+
+    @Override
+    public List<Subtask> getEpicSubtasks(int id) {
+        Epic epic = published.getEpics().get(id);
+        return epic == null ? null : epic.getSubtasks();
+    }
+
+    @Override
+    public void deleteAllTasks() {
+        awaitUnchecked(submit(taskManager -> {
+            taskManager.deleteAllTasks();
+            return null;
+        }));
+    }
+
+    @Override
+    public void deleteAllEpics() {
+        awaitUnchecked(submit(taskManager -> {
+            taskManager.deleteAllEpics();
+            return null;
+        }));
+    }
+
+    @Override
+    public void deleteAllSubtasks() {
+        awaitUnchecked(submit(taskManager -> {
+            taskManager.deleteAllSubtasks();
+            return null;
+        }));
+    }
+
+    @Override
+    public void deleteWhere(Predicate<Task> filter) {
+        awaitUnchecked(submit(taskManager -> {
+            taskManager.deleteWhere(filter);
+            return null;
+        }));
+    }
+
+    @Override
+    public Task getTask(int id) {
+        return viewed(published.getTasks().get(id), taskManager -> taskManager.getTask(id));
+    }
+
+    @Override
+    public Epic getEpic(int id) {
+        return viewed(published.getEpics().get(id), taskManager -> taskManager.getEpic(id));
+    }
+
+    @Override
+    public Subtask getSubtask(int id) {
+        return viewed(published.getSubtasks().get(id), taskManager -> taskManager.getSubtask(id));
+    }
+
+    @Override
+    public void deleteTask(int id) {
+        awaitUnchecked(submit(taskManager -> {
+            taskManager.deleteTask(id);
+            return null;
+        }));
+    }
+
+    @Override
+    public void deleteEpic(int id) {
+        awaitUnchecked(submit(taskManager -> {
+            taskManager.deleteEpic(id);
+            return null;
+        }));
+    }
+
+    @Override
+    public void deleteSubtask(int id) {
+        awaitUnchecked(submit(taskManager -> {
+            taskManager.deleteSubtask(id);
+            return null;
+        }));
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        return awaitUnchecked(query(TaskManager::getHistory));
+    }
+
+    @Override
+    public List<Task> getHistory(int limit) {
+        return awaitUnchecked(query(taskManager -> taskManager.getHistory(limit)));
+    }
+
+    @Override
+    public List<Task> getHistoryAfter(int afterId, int limit) {
+        return awaitUnchecked(query(taskManager -> taskManager.getHistoryAfter(afterId, limit)));
+    }
+
+    @Override
+    public void runInTransaction(TaskBatch batch) throws ManagerPrioritizeException {
+        await(submit(taskManager -> {
+            taskManager.runInTransaction(batch);
+            return null;
+        }));
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasks() {
+        return List.copyOf(published.getSchedule());
+    }
+
+    @Override
+    public SortedSet<Task> getTasksStartingBetween(LocalDateTime from, LocalDateTime to) {
+        return InMemoryTaskManager.startingBetween(published.getSchedule(), from, to);
+    }
+
+    @Override
+    public SortedSet<Task> getTasksOverlapping(LocalDateTime from, LocalDateTime to) {
+        return InMemoryTaskManager.overlapping(published.getSchedule(), from, to);
+    }
+
+    @Override
+    public Optional<LocalDateTime> findFreeSlot(Duration duration, LocalDateTime from) {
+        return InMemoryTaskManager.collectFreeSlots(published.getSchedule(), duration, from, null, 1).stream()
+                .findFirst();
+    }
+
+    @Override
+    public List<LocalDateTime> findFreeSlots(Duration duration, LocalDateTime from, LocalDateTime to, int limit) {
+        return InMemoryTaskManager.collectFreeSlots(published.getSchedule(), duration, from, to, limit);
+    }
+
+    @Override
+    public Map<Integer, Task> getTasks() {
+        return published.getTasks();
+    }
+
+    @Override
+    public Map<Integer, Epic> getEpics() {
+        return published.getEpics();
+    }
+
+    @Override
+    public Map<Integer, Subtask> getSubtasks() {
+        return published.getSubtasks();
+    }
+
+    // операции, уже принятые в очередь, выполняются до остановки цикла
+    @Override
+    public void close() {
+        closeLock.writeLock().lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        } finally {
+            closeLock.writeLock().unlock();
+        }
+
+        try {
+            // пустая команда будит цикл, если очередь пуста
+            queue.put(new Command<>(taskManager -> null, false, Runnable::run, new CompletableFuture<>()));
+            loop.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // отметка о просмотре не ждёт места в очереди команд; цикл будится, только если ещё не знает о просмотрах
+    private <T extends Task> T viewed(T task, TaskOperation<?> operation) {
+        if (task != null && !closed) {
+            Executor context = callerContext();
+            views.add(() -> context.execute(() -> {
+                try {
+                    operation.apply(taskManager);
+                } catch (Throwable e) {
+                    // просмотр не меняет задачи, его ошибка не должна останавливать цикл
+                }
+            }));
+
+            if (viewsScheduled.compareAndSet(false, true)) {
+                queue.offer(new Command<>(taskManager -> null, false, Runnable::run, new CompletableFuture<>()));
+            }
+        }
+
+        return task;
+    }
+
+    // контекст истории обёрнутого менеджера, например сессия пользователя вызывающего потока
+    private Executor callerContext() {
+        if (taskManager instanceof InMemoryTaskManager inMemoryTaskManager) {
+            return inMemoryTaskManager.getHistoryManager().callerContext();
+        }
+
+        return Runnable::run;
+    }
+
+    private void runLoop() {
+        List<Command<?>> batch = new ArrayList<>(maxBatch);
+        List<Runnable> completions = new ArrayList<>(maxBatch);
+
+        while (!closed || !queue.isEmpty()) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                continue;
+            }
+            queue.drainTo(batch, maxBatch - 1);
+            applyViews();
+
+            boolean changed = false;
+            for (Command<?> command : batch) {
+                completions.add(command.apply(recorder));
+                changed |= command.changing();
+            }
+
+            try {
+                if (changed) {
+                    publish();
+                }
+                completions.forEach(Runnable::run);
+            } catch (Throwable e) {
+                batch.forEach(command -> command.result().completeExceptionally(e));
+            }
+
+            batch.clear();
+            completions.clear();
+        }
+
+        applyViews();
+    }
+
+    // флаг сбрасывается до разбора, поэтому просмотр, пришедший во время разбора, снова разбудит цикл
+    private void applyViews() {
+        viewsScheduled.set(false);
+
+        Runnable view;
+        while ((view = views.poll()) != null) {
+            try {
+                view.run();
+            } catch (Throwable e) {
+                // просмотр не меняет задачи, его ошибка не должна останавливать цикл
+            }
+        }
+    }
+
+    private void publish() {
+        published.publish(recorder.tasks, recorder.epics, recorder.subtasks, taskManager.getTasks(),
+                taskManager.getEpics(), taskManager.getSubtasks());
+        recorder.clear();
+    }
+
+    private static <T> T await(CompletableFuture<T> result) throws ManagerPrioritizeException {
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof ManagerPrioritizeException prioritizeException) {
+                throw prioritizeException;
+            }
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw e;
+        }
+    }
+
+    private static <T> T awaitUnchecked(CompletableFuture<T> result) {
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw e;
+        }
+    }
+
+    /*
+    Обёртка, через которую операции цикла меняют менеджер: она запоминает id задач, эпиков и подзадач, которые
+    могли измениться, чтобы опубликовать только их. Для подзадачи её эпик находится при публикации, а вместе
+    с удалённым эпиком снимаются и его подзадачи. Лишний id не вредит: запись просто публикуется такой, какая она
+    сейчас, в том числе после отката пакета. Используется только потоком цикла.
+    */
+    private static final class ChangeRecorder implements TaskManager {
+        private final TaskManager taskManager;
+        private final Set<Integer> tasks;
+        private final Set<Integer> epics;
+        private final Set<Integer> subtasks;
+
+        private ChangeRecorder(TaskManager taskManager) {
+            this(taskManager, new HashSet<>(), new HashSet<>(), new HashSet<>());
+        }
+
+        private ChangeRecorder(TaskManager taskManager, Set<Integer> tasks, Set<Integer> epics,
+                               Set<Integer> subtasks) {
+            this.taskManager = taskManager;
+            this.tasks = tasks;
+            this.epics = epics;
+            this.subtasks = subtasks;
+        }
+
+        private void recordAll() {
+            tasks.addAll(taskManager.getTasks().keySet());
+            epics.addAll(taskManager.getEpics().keySet());
+            subtasks.addAll(taskManager.getSubtasks().keySet());
+        }
+
+        private void clear() {
+            tasks.clear();
+            epics.clear();
+            subtasks.clear();
+        }
+
+        private void record(Task task) {
+            if (task.getId() == null) {
+                return;
+            }
+
+            switch (task.getType()) {
+                case TASK -> tasks.add(task.getId());
+                case EPIC -> epics.add(task.getId());
+                case SUBTASK -> subtasks.add(task.getId());
+            }
+        }
+
+        @Override
+        public void createTask(Task task) throws ManagerPrioritizeException {
+            try {
+                taskManager.createTask(task);
+            } finally {
+                record(task);
+            }
+        }
+
+        @Override
+        public void createEpic(Epic epic) {
+            try {
+                taskManager.createEpic(epic);
+            } finally {
+                record(epic);
+            }
+        }
+
+        @Override
+        public void createSubtask(Subtask subtask, int epicId) throws ManagerPrioritizeException {
+            try {
+                taskManager.createSubtask(subtask, epicId);
+            } finally {
+                record(subtask);
+                epics.add(epicId);
+            }
+        }
+
+        @Override
+        public void updateTask(Task task, Integer id) throws ManagerPrioritizeException {
+            try {
+                taskManager.updateTask(task, id);
+            } finally {
+                tasks.add(id);
+            }
+        }
+
+        @Override
+        public void updateEpic(Epic epic, Integer id) {
+            try {
+                taskManager.updateEpic(epic, id);
+            } finally {
+                epics.add(id);
+            }
+        }
+
+        @Override
+        public void updateSubtask(Subtask subtask, Integer id) throws ManagerPrioritizeException {
+            try {
+                taskManager.updateSubtask(subtask, id);
+            } finally {
+                subtasks.add(id);
+            }
+        }
+
+        @Override
+        public List<Task> getAllTasks() {
+            return taskManager.getAllTasks();
+        }
+
+        @Override
+        public List<Epic> getAllEpics() {
+            return taskManager.getAllEpics();
+        }
+
+        @Override
+        public List<Subtask> getAllSubtasks() {
+            return taskManager.getAllSubtasks();
+        }
+
+        @Override
+        public List<Subtask> getEpicSubtasks(int id) {
+            return taskManager.getEpicSubtasks(id);
+        }
+
+        @Override
+        public void deleteAllTasks() {
+            tasks.addAll(taskManager.getTasks().keySet());
+            taskManager.deleteAllTasks();
+        }
+
+        @Override
+        public void deleteAllEpics() {
+            recordAll();
+            taskManager.deleteAllEpics();
+        }
+
+        // статус пересчитывается и у эпиков без подзадач, поэтому публикуются все эпики
+        @Override
+        public void deleteAllSubtasks() {
+            epics.addAll(taskManager.getEpics().keySet());
+            subtasks.addAll(taskManager.getSubtasks().keySet());
+            taskManager.deleteAllSubtasks();
+        }
+
+        @Override
+        public void deleteWhere(Predicate<Task> filter) {
+            taskManager.deleteWhere(task -> {
+                boolean removed = filter.test(task);
+                if (removed) {
+                    record(task);
+                }
+                return removed;
+            });
+        }
+
+        @Override
+        public Task getTask(int id) {
+            return taskManager.getTask(id);
+        }
+
+        @Override
+        public Epic getEpic(int id) {
+            return taskManager.getEpic(id);
+        }
+
+        @Override
+        public Subtask getSubtask(int id) {
+            return taskManager.getSubtask(id);
+        }
+
+        @Override
+        public void deleteTask(int id) {
+            tasks.add(id);
+            taskManager.deleteTask(id);
+        }
+
+        @Override
+        public void deleteEpic(int id) {
+            epics.add(id);
+            taskManager.deleteEpic(id);
+        }
+
+        @Override
+        public void deleteSubtask(int id) {
+            subtasks.add(id);
+            taskManager.deleteSubtask(id);
+        }
+
+        @Override
+        public List<Task> getHistory() {
+            return taskManager.getHistory();
+        }
+
+        @Override
+        public List<Task> getHistory(int limit) {
+            return taskManager.getHistory(limit);
+        }
+
+        @Override
+        public List<Task> getHistoryAfter(int afterId, int limit) {
+            return taskManager.getHistoryAfter(afterId, limit);
+        }
+
+        // пакет получает от менеджера его самого или другую обёртку, поэтому тоже работает через запоминающую
+        @Override
+        public void runInTransaction(TaskBatch batch) throws ManagerPrioritizeException {
+            taskManager.runInTransaction(manager -> batch.run(manager == taskManager ? this
+                    : new ChangeRecorder(manager, tasks, epics, subtasks)));
+        }
+
+        @Override
+        public List<Task> getPrioritizedTasks() {
+            return taskManager.getPrioritizedTasks();
+        }
+
+        @Override
+        public SortedSet<Task> getTasksStartingBetween(LocalDateTime from, LocalDateTime to) {
+            return taskManager.getTasksStartingBetween(from, to);
+        }
+
+        @Override
+        public SortedSet<Task> getTasksOverlapping(LocalDateTime from, LocalDateTime to) {
+            return taskManager.getTasksOverlapping(from, to);
+        }
+
+        @Override
+        public Optional<LocalDateTime> findFreeSlot(Duration duration, LocalDateTime from) {
+            return taskManager.findFreeSlot(duration, from);
+        }
+
+        @Override
+        public List<LocalDateTime> findFreeSlots(Duration duration, LocalDateTime from, LocalDateTime to,
+                                                 int limit) {
+            return taskManager.findFreeSlots(duration, from, to, limit);
+        }
+
+        // карты отдаются только на чтение, иначе изменение через них прошло бы мимо учёта
+        @Override
+        public Map<Integer, Task> getTasks() {
+            return Collections.unmodifiableMap(taskManager.getTasks());
+        }
+
+        @Override
+        public Map<Integer, Epic> getEpics() {
+            return Collections.unmodifiableMap(taskManager.getEpics());
+        }
+
+        @Override
+        public Map<Integer, Subtask> getSubtasks() {
+            return Collections.unmodifiableMap(taskManager.getSubtasks());
+        }
+    }
+}
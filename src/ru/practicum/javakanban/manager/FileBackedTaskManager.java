@@ -4,198 +4,559 @@ import ru.practicum.javakanban.exeptions.ManagerLoadException;
 import ru.practicum.javakanban.exeptions.ManagerPrioritizeException;
 import ru.practicum.javakanban.exeptions.ManagerSaveException;
 import ru.practicum.javakanban.model.Epic;
-import ru.practicum.javakanban.model.Status;
 import ru.practicum.javakanban.model.Subtask;
 import ru.practicum.javakanban.model.Task;
+import ru.practicum.javakanban.model.TaskType;
 
 import java.io.*;
 import java.nio.charset.StandardCharsets;
-import java.time.Duration;
-import java.time.LocalDateTime;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-
-public class FileBackedTaskManager extends InMemoryTaskManager {
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Predicate;
+
+public class FileBackedTaskManager extends InMemoryTaskManager implements AutoCloseable {
 
     public static final String HEADER = "id,type,name,status,description,duration,startTime,epicId";
     private final File taskManagerCsv;
+    private final StorageMode storageMode;
+    private final TaskJournal journal;
+    private final CompactionPolicy compactionPolicy;
+    private final Set<Integer> pendingIds = new LinkedHashSet<>();
+    private boolean journalStarted;
+    private int nestedChanges;
+    private ExecutorService compactionExecutor;
+    private CompletableFuture<Void> compaction = CompletableFuture.completedFuture(null);
+    private CompletableFuture<Void> lastWrite = CompletableFuture.completedFuture(null);
 
     public FileBackedTaskManager(HistoryManager historyManager, File taskManagerCsv) {
-        super(historyManager);
-        this.taskManagerCsv = taskManagerCsv;
+        this(historyManager, taskManagerCsv, StorageMode.SNAPSHOT);
     }
 
-    private static Task fromString(String value) {
-        String[] headers = HEADER.split(",");
-        Map<String, Integer> params = new HashMap<>();
-
-        for (int i = 0; i < headers.length; i++) {
-            params.put(headers[i], i);
-        }
+    public FileBackedTaskManager(HistoryManager historyManager, File taskManagerCsv, StorageMode storageMode) {
+        this(historyManager, taskManagerCsv, storageMode, CompactionPolicy.defaultPolicy());
+    }
 
-        String[] parameters = value.split(",");
+    public FileBackedTaskManager(HistoryManager historyManager, File taskManagerCsv, StorageMode storageMode,
+                                 CompactionPolicy compactionPolicy) {
+        this(historyManager, taskManagerCsv, storageMode, compactionPolicy, null);
+    }
 
-        return switch (parameters[params.get("type")]) {
-            case "TASK" -> new Task(parameters[params.get("name")], parameters[params.get("description")],
-                    Integer.parseInt(parameters[params.get("id")]), Status.fromString(parameters[params.get("status")]),
-                    Duration.ofMinutes(Long.parseLong(parameters[params.get("duration")])),
-                    LocalDateTime.parse(parameters[params.get("startTime")]));
-            case "SUBTASK" ->
-                    new Subtask(parameters[params.get("name")], parameters[params.get("description")], Integer.parseInt(parameters[params.get("id")]),
-                            Status.fromString(parameters[params.get("status")]), Integer.parseInt(parameters[params.get("epicId")]), Duration.ofMinutes(Long.parseLong(parameters[params.get("duration")])),
-                            LocalDateTime.parse(parameters[params.get("startTime")]));
-            case "EPIC" ->
-                    new Epic(parameters[params.get("name")], parameters[params.get("description")], Integer.parseInt(parameters[params.get("id")]),
-                            Status.fromString(parameters[params.get("status")]));
-            default -> throw new IllegalArgumentException("Невалидная строка.");
-        };
+    // с политикой надёжности журнал пишется фоновым потоком пачками, без неё — синхронно при каждом изменении
+    public FileBackedTaskManager(HistoryManager historyManager, File taskManagerCsv, StorageMode storageMode,
+                                 CompactionPolicy compactionPolicy, DurabilityPolicy durabilityPolicy) {
+        super(historyManager);
+        this.taskManagerCsv = taskManagerCsv;
+        this.storageMode = storageMode;
+        this.journal = new TaskJournal(new File(taskManagerCsv.getPath() + ".log"), durabilityPolicy);
+        this.compactionPolicy = compactionPolicy;
     }
 
-    private static List<String> getStrings(File file) {
-        List<String> stringTasks = new ArrayList<>();
+    private static List<Task> readSnapshot(File file) {
+        List<Task> restored = new ArrayList<>();
 
-        try (Reader reader = new FileReader(file.getAbsolutePath(), StandardCharsets.UTF_8)) {
-            BufferedReader bufferedReader = new BufferedReader(reader);
-            boolean firstString = true;
+        try (TaskCsvReader reader = new TaskCsvReader(new FileReader(file, StandardCharsets.UTF_8))) {
+            boolean header = true;
 
-            while (bufferedReader.ready()) {
-                if (firstString) {
-                    bufferedReader.readLine();
-                    firstString = false;
+            while (reader.next()) {
+                if (header) {
+                    header = false;
                     continue;
                 }
-                String taskStr = bufferedReader.readLine();
-                stringTasks.add(taskStr);
+                restored.add(reader.readTask(0));
             }
         } catch (IOException e) {
             throw new ManagerLoadException("Внимание: рак на горе свистнул!");
         }
 
-        return stringTasks;
+        return restored;
     }
 
     public static FileBackedTaskManager loadFromFile(File file) {
-        FileBackedTaskManager fileBackedTaskManager = new FileBackedTaskManager(Managers.getDefaultHistory(), file);
-        var strings = getStrings(file);
+        return loadFromFile(file, Managers.getDefaultHistory());
+    }
 
-        try {
-            for (String string : strings) {
-                Task task = fromString(string);
-                switch (task.getType()) {
-                    case TASK -> fileBackedTaskManager.createTask(task);
-                    case EPIC -> fileBackedTaskManager.createEpic((Epic) task);
-                    case SUBTASK -> fileBackedTaskManager.createSubtask((Subtask) task, ((Subtask) task).getEpicId());
-                }
+    // с PersistentHistoryManager после загрузки задач из её журнала восстанавливается и история просмотров
+    public static FileBackedTaskManager loadFromFile(File file, HistoryManager historyManager) {
+        FileBackedTaskManager fileBackedTaskManager = new FileBackedTaskManager(historyManager, file);
+        fileBackedTaskManager.restore(readSnapshot(file));
+        fileBackedTaskManager.restoreHistory();
+
+        return fileBackedTaskManager;
+    }
+
+    // для больших выгрузок: разбор файла делится между ядрами, затем задачи восстанавливаются одним проходом
+    public static FileBackedTaskManager loadFromFileParallel(File file) {
+        return loadFromFileParallel(file, Runtime.getRuntime().availableProcessors());
+    }
+
+    public static FileBackedTaskManager loadFromFileParallel(File file, int parallelism) {
+        return loadFromFileParallel(file, parallelism, Managers.getDefaultHistory());
+    }
+
+    public static FileBackedTaskManager loadFromFileParallel(File file, int parallelism,
+                                                             HistoryManager historyManager) {
+        if (parallelism <= 1) {
+            return loadFromFile(file, historyManager);
+        }
+
+        FileBackedTaskManager fileBackedTaskManager = new FileBackedTaskManager(historyManager, file);
+        fileBackedTaskManager.restore(ParallelCsvLoader.read(file, parallelism));
+        fileBackedTaskManager.restoreHistory();
+
+        return fileBackedTaskManager;
+    }
+
+    // двоичный снимок читается без разбора текста; дальнейшие изменения сохраняются в file как обычно
+    public static FileBackedTaskManager loadFromBinarySnapshot(File snapshotFile, File file) {
+        return loadFromBinarySnapshot(snapshotFile, file, Managers.getDefaultHistory());
+    }
+
+    public static FileBackedTaskManager loadFromBinarySnapshot(File snapshotFile, File file,
+                                                               HistoryManager historyManager) {
+        FileBackedTaskManager fileBackedTaskManager = new FileBackedTaskManager(historyManager, file);
+        fileBackedTaskManager.restore(BinarySnapshot.read(snapshotFile));
+        fileBackedTaskManager.restoreHistory();
+
+        return fileBackedTaskManager;
+    }
+
+    public static FileBackedTaskManager loadFromFile(File file, StorageMode storageMode) {
+        return loadFromFile(file, storageMode, CompactionPolicy.defaultPolicy());
+    }
+
+    public static FileBackedTaskManager loadFromFile(File file, StorageMode storageMode,
+                                                     CompactionPolicy compactionPolicy) {
+        return loadFromFile(file, storageMode, compactionPolicy, null);
+    }
+
+    public static FileBackedTaskManager loadFromFile(File file, StorageMode storageMode,
+                                                     CompactionPolicy compactionPolicy,
+                                                     DurabilityPolicy durabilityPolicy) {
+        return loadFromFile(file, storageMode, compactionPolicy, durabilityPolicy, Managers.getDefaultHistory());
+    }
+
+    public static FileBackedTaskManager loadFromFile(File file, StorageMode storageMode,
+                                                     CompactionPolicy compactionPolicy,
+                                                     DurabilityPolicy durabilityPolicy,
+                                                     HistoryManager historyManager) {
+        if (storageMode == StorageMode.SNAPSHOT) {
+            return loadFromFile(file, historyManager);
+        }
+
+        FileBackedTaskManager fileBackedTaskManager = new FileBackedTaskManager(historyManager, file,
+                storageMode, compactionPolicy, durabilityPolicy);
+        Map<Integer, Task> state = new LinkedHashMap<>();
+
+        if (file.exists()) {
+            for (Task task : readSnapshot(file)) {
+                state.put(task.getId(), task);
             }
-        } catch (ManagerPrioritizeException e) {
-            throw new RuntimeException(e);
         }
 
+        // если хвост журнала был повреждён, первая же запись начнёт журнал заново со свежего снимка
+        fileBackedTaskManager.journalStarted = fileBackedTaskManager.journal.replay(state);
+        fileBackedTaskManager.restore(state.values());
+        fileBackedTaskManager.restoreHistory();
+
         return fileBackedTaskManager;
     }
 
     @Override
     public void createTask(Task task) throws ManagerPrioritizeException {
         super.createTask(task);
-        save();
+        saveChanges(List.of(task), List.of());
     }
 
     @Override
     public void createEpic(Epic epic) {
         super.createEpic(epic);
-        save();
+        saveChanges(List.of(epic), List.of());
     }
 
     @Override
     public void createSubtask(Subtask subtask, int epicId) throws ManagerPrioritizeException {
-        super.createSubtask(subtask, epicId);
-        save();
+        nested(() -> super.createSubtask(subtask, epicId));
+        saveChanges(List.of(subtask, getEpics().get(epicId)), List.of());
     }
 
     @Override
     public void updateTask(Task task, Integer id) throws ManagerPrioritizeException {
-        super.updateTask(task, id);
-        save();
+        nested(() -> super.updateTask(task, id));
+        saveChanges(List.of(task), List.of());
     }
 
     @Override
     public void updateEpic(Epic epic, Integer id) {
         super.updateEpic(epic, id);
-        save();
+        saveChanges(List.of(epic), List.of());
     }
 
     @Override
     public void updateSubtask(Subtask subtask, Integer id) throws ManagerPrioritizeException {
-        super.updateSubtask(subtask, id);
-        save();
+        nested(() -> super.updateSubtask(subtask, id));
+        saveChanges(List.of(subtask, getEpics().get(subtask.getEpicId())), List.of());
     }
 
     @Override
     public void deleteAllTasks() {
+        List<Integer> deleted = new ArrayList<>(getTasks().keySet());
         super.deleteAllTasks();
-        save();
+        saveChanges(List.of(), deleted);
     }
 
     @Override
     public void deleteAllEpics() {
+        List<Integer> deleted = new ArrayList<>(getEpics().keySet());
+        deleted.addAll(getSubtasks().keySet());
         super.deleteAllEpics();
-        save();
+        saveChanges(List.of(), deleted);
     }
 
     @Override
     public void deleteAllSubtasks() {
+        List<Integer> deleted = new ArrayList<>(getSubtasks().keySet());
         super.deleteAllSubtasks();
-        save();
+        saveChanges(deleted.isEmpty() ? List.of() : getAllEpics(), deleted);
+    }
+
+    @Override
+    public void deleteWhere(Predicate<Task> filter) {
+        List<Task> removed = purge(filter);
+        List<Integer> deleted = removed.stream().map(Task::getId).toList();
+        List<Epic> changedEpics = removed.stream()
+                .filter(task -> task.getType() == TaskType.SUBTASK)
+                .map(subtask -> getEpics().get(((Subtask) subtask).getEpicId()))
+                .filter(Objects::nonNull)
+                .distinct()
+                .toList();
+
+        saveChanges(changedEpics, deleted);
     }
 
     @Override
     public void deleteSubtask(int id) {
-        super.deleteSubtask(id);
-        save();
+        Subtask subtask = getSubtasks().get(id);
+        nestedUnchecked(() -> super.deleteSubtask(id));
+
+        if (subtask != null) {
+            saveChanges(List.of(getEpics().get(subtask.getEpicId())), List.of(id));
+        } else {
+            saveChanges(List.of(), List.of());
+        }
     }
 
     @Override
     public void deleteTask(int id) {
+        boolean exists = getTasks().containsKey(id);
         super.deleteTask(id);
-        save();
+        saveChanges(List.of(), exists ? List.of(id) : List.of());
     }
 
     @Override
     public void deleteEpic(int id) {
+        List<Integer> deleted = new ArrayList<>();
+
+        if (getEpics().containsKey(id)) {
+            deleted.add(id);
+            getEpics().get(id).getSubtasks().forEach(subtask -> deleted.add(subtask.getId()));
+        }
+
         super.deleteEpic(id);
-        save();
+        saveChanges(List.of(), deleted);
     }
 
-    private void save() {
+    // изменения пакета копятся по id и сохраняются одной записью после его успешного завершения
+    @Override
+    public void runInTransaction(TaskBatch batch) throws ManagerPrioritizeException {
+        if (isInTransaction()) {
+            super.runInTransaction(batch);
+            return;
+        }
+
+        try {
+            super.runInTransaction(batch);
+            savePendingChanges();
+        } finally {
+            pendingIds.clear();
+        }
+    }
+
+    private void savePendingChanges() {
+        if (pendingIds.isEmpty()) {
+            return;
+        }
+
+        List<Task> updated = new ArrayList<>();
+        List<Integer> deleted = new ArrayList<>();
+
+        for (Integer id : pendingIds) {
+            Task task = findTask(id);
+
+            if (task != null) {
+                updated.add(task);
+            } else {
+                deleted.add(id);
+            }
+        }
+
+        pendingIds.clear();
+        writeChanges(updated, deleted);
+    }
+
+    /*
+    Изменение может вызывать другие переопределённые методы: createSubtask и deleteSubtask — updateEpic,
+    updateTask — deleteTask. Такие вложенные вызовы не пишут сами, а копят id, и всё изменение сохраняется одной
+    записью на внешнем уровне, без повторного сохранения эпика.
+    */
+    @FunctionalInterface
+    private interface Change {
+        void run() throws ManagerPrioritizeException;
+    }
+
+    private void nested(Change change) throws ManagerPrioritizeException {
+        nestedChanges++;
+        try {
+            change.run();
+        } finally {
+            nestedChanges--;
+        }
+    }
+
+    private void nestedUnchecked(Runnable change) {
+        nestedChanges++;
+        try {
+            change.run();
+        } finally {
+            nestedChanges--;
+        }
+    }
+
+    private Task findTask(int id) {
+        if (getTasks().containsKey(id)) {
+            return getTasks().get(id);
+        } else if (getEpics().containsKey(id)) {
+            return getEpics().get(id);
+        }
+
+        return getSubtasks().get(id);
+    }
+
+    private void saveChanges(List<? extends Task> updated, List<Integer> deleted) {
+        if (isInTransaction() || nestedChanges > 0 || !pendingIds.isEmpty()) {
+            updated.forEach(task -> pendingIds.add(task.getId()));
+            pendingIds.addAll(deleted);
+        }
+
+        if (isInTransaction() || nestedChanges > 0) {
+            return;
+        }
+
+        if (!pendingIds.isEmpty()) {
+            savePendingChanges();
+            return;
+        }
+
+        writeChanges(updated, deleted);
+    }
+
+    private void writeChanges(List<? extends Task> updated, List<Integer> deleted) {
+        if (storageMode == StorageMode.SNAPSHOT) {
+            save();
+            return;
+        }
+
+        if (!journalStarted) {
+            startJournal();
+            return;
+        }
+
+        // после сбоя записи журнал принимает изменения только после compact(), который начинает его заново
+        journal.checkWritable();
+
+        if (!updated.isEmpty() || !deleted.isEmpty()) {
+            lastWrite = journal.append(updated, deleted);
+        }
+
+        if (compaction.isDone() && compactionPolicy.isExceeded(journal.getSize(), journal.getRecordCount())) {
+            compact();
+        }
+    }
+
+    /*
+    В вызывающем потоке только копируются списки задач (без обращения к диску) и заказывается закрытие текущего
+    журнала в сегмент. При групповой записи сегмент закрывает поток записи после уже принятых записей, а запись
+    снимка и удаление покрытых им сегментов выполняются в фоновом потоке, когда сегмент закрыт. Задачи и
+    подзадачи при изменении заменяются новыми объектами, поэтому их можно передать как есть; эпики меняются на
+    месте, поэтому сохраняются строками.
+    */
+    public CompletableFuture<Void> compact() {
+        if (storageMode != StorageMode.JOURNAL) {
+            save();
+            return CompletableFuture.completedFuture(null);
+        }
+
+        // автоматический запуск не ждёт текущее сжатие, а явный вызов дожидается его и начинает новое
+        awaitCompaction();
+
+        if (!journalStarted) {
+            startJournal();
+            return CompletableFuture.completedFuture(null);
+        }
+
         List<Task> tasks = getAllTasks();
-        List<Epic> epics = getAllEpics();
+        List<String> epicLines = getAllEpics().stream().map(Epic::convertToString).toList();
         List<Subtask> subtasks = getAllSubtasks();
 
-        try (Writer writer = new FileWriter(taskManagerCsv, StandardCharsets.UTF_8)) {
+        compaction = journal.rotate().thenAcceptAsync(segment -> {
+            writeSnapshot(tasks, epicLines, subtasks);
+            journal.deleteSegments(journal.getSegmentsThrough(segment));
+        }, getCompactionExecutor());
 
-            writer.write(HEADER + "\n");
+        return compaction;
+    }
 
-            for (Task task : tasks) {
-                writer.write(task.convertToString() + "\n");
-            }
+    // дождаться, пока все уже принятые изменения окажутся на диске, можно через flush().join()
+    public CompletableFuture<Void> flush() {
+        if (storageMode != StorageMode.JOURNAL) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        return journal.sync();
+    }
+
+    // завершается, когда последнее изменение окажется на диске согласно политике надёжности, без внеочередного
+    // сброса; без политики и в режиме снимка запись синхронная, и будущее уже завершено
+    public CompletableFuture<Void> getLastWrite() {
+        return lastWrite;
+    }
 
+    public void saveBinarySnapshot(File snapshotFile) {
+        BinarySnapshot.write(snapshotFile, getAllTasks(), getAllEpics(), getAllSubtasks());
+    }
 
-            for (Epic epic : epics) {
-                writer.write(epic.convertToString() + "\n");
+    @Override
+    public void close() {
+        try {
+            compaction.join();
+        } catch (CompletionException e) {
+            throw new ManagerSaveException("Не удалось сжать журнал: " + e.getCause().getMessage());
+        } finally {
+            if (compactionExecutor != null) {
+                compactionExecutor.shutdown();
             }
+            journal.close();
 
-            for (Subtask subtask : subtasks) {
-                writer.write(subtask.convertToString() + "\n");
+            if (getHistoryManager() instanceof PersistentHistoryManager persistentHistory) {
+                persistentHistory.close();
             }
+        }
+    }
 
+    private void restoreHistory() {
+        if (getHistoryManager() instanceof PersistentHistoryManager persistentHistory) {
+            persistentHistory.restore(this::findTask);
+        }
+    }
+
+    private void awaitCompaction() {
+        try {
+            compaction.join();
+        } catch (CompletionException e) {
+            // сегменты неудачного сжатия остаются на диске и будут покрыты следующим снимком
+        }
+    }
+
+    // новый журнал начинается со снимка текущего состояния, чтобы не подхватить записи из старого файла
+    private void startJournal() {
+        save();
+        journal.deleteSegments(journal.getSegments());
+        journal.reset();
+        journalStarted = true;
+    }
+
+    private void save() {
+        List<String> epicLines = getAllEpics().stream().map(Epic::convertToString).toList();
+
+        try (Writer writer = new FileWriter(taskManagerCsv, StandardCharsets.UTF_8)) {
+            writeLines(writer, getAllTasks(), epicLines, getAllSubtasks());
         } catch (IOException e) {
             throw new ManagerSaveException("Внимание: рак на горе свистнул!");
         }
     }
 
+    private void writeSnapshot(List<Task> tasks, List<String> epicLines, List<Subtask> subtasks) {
+        File snapshot = new File(taskManagerCsv.getPath() + ".tmp");
+
+        try (Writer writer = new BufferedWriter(new FileWriter(snapshot, StandardCharsets.UTF_8))) {
+            writeLines(writer, tasks, epicLines, subtasks);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Не удалось записать снимок " + snapshot.getName());
+        }
+
+        try {
+            try {
+                Files.move(snapshot.toPath(), taskManagerCsv.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(snapshot.toPath(), taskManagerCsv.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            throw new ManagerSaveException("Не удалось заменить снимок " + taskManagerCsv.getName());
+        }
+    }
+
+    private static void writeLines(Writer writer, List<Task> tasks, List<String> epicLines,
+                                   List<Subtask> subtasks) throws IOException {
+        writer.write(HEADER + "\n");
+
+        for (Task task : tasks) {
+            writer.write(task.convertToString() + "\n");
+        }
+
+        for (String epicLine : epicLines) {
+            writer.write(epicLine + "\n");
+        }
+
+        for (Subtask subtask : subtasks) {
+            writer.write(subtask.convertToString() + "\n");
+        }
+    }
+
+    private ExecutorService getCompactionExecutor() {
+        if (compactionExecutor == null) {
+            compactionExecutor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "task-journal-compaction");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        return compactionExecutor;
+    }
+
     public File getTaskManagerCsv() {
         return taskManagerCsv;
     }
+
+    public File getJournalFile() {
+        return journal.getJournalFile();
+    }
+
+    public StorageMode getStorageMode() {
+        return storageMode;
+    }
+
+    public CompactionPolicy getCompactionPolicy() {
+        return compactionPolicy;
+    }
+
+    public DurabilityPolicy getDurabilityPolicy() {
+        return journal.getDurabilityPolicy();
+    }
 }
@@ -0,0 +1,254 @@
+package ru.practicum.javakanban.manager;
+
+import ru.practicum.javakanban.exeptions.ManagerSaveException;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/*
+Групповая запись в конец файла. Вызывающие потоки только кладут готовые байты в очередь, а отдельный поток
+забирает всё накопившееся, пишет одной операцией и сбрасывает на диск по DurabilityPolicy. Будущее каждой
+записи завершается, когда она гарантированно на диске; запросы sync и release сбрасывают всё принятое
+до них, release дополнительно закрывает файл, чтобы его можно было переименовать или очистить, а rotate
+после этого сам переименовывает файл в сегмент, так что вызывающий поток не ждёт диска.
+Ошибка записи запоминается: все следующие записи и сбросы этого писателя завершаются ею же, пока журнал
+не начнут заново с новым писателем, иначе flush подтвердил бы записи, которые уже потеряны.
+*/
+public class GroupCommitWriter implements AutoCloseable {
+    private static final int MAX_BATCH = 4096;
+
+    private final File file;
+    private final DurabilityPolicy policy;
+    private final BlockingQueue<Request> queue = new LinkedBlockingQueue<>();
+    private final Thread thread;
+    private volatile boolean running = true;
+    private volatile ManagerSaveException failure;
+
+    // состояние ниже используется только потоком записи
+    private final List<Request> batch = new ArrayList<>();
+    private final List<CompletableFuture<Void>> unsynced = new ArrayList<>();
+    private FileChannel channel;
+    private int unsyncedRecords;
+    private long lastSync = System.nanoTime();
+
+    private record Request(byte[] bytes, int records, boolean sync, boolean release, File rotateTo,
+                           CompletableFuture<Void> done) {
+    }
+
+    public GroupCommitWriter(File file, DurabilityPolicy policy) {
+        this.file = file;
+        this.policy = policy;
+        this.thread = new Thread(this::run, "task-journal-writer");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    public CompletableFuture<Void> write(byte[] bytes, int records) {
+        return submit(new Request(bytes, records, false, false, null, new CompletableFuture<>()));
+    }
+
+    public CompletableFuture<Void> sync() {
+        return submit(new Request(null, 0, true, false, null, new CompletableFuture<>()));
+    }
+
+    // завершается, когда всё принятое до вызова сброшено на диск, а файл переименован в segment;
+    // записи после вызова пойдут в новый файл
+    public CompletableFuture<Void> rotate(File segment) {
+        return submit(new Request(null, 0, true, true, segment, new CompletableFuture<>()));
+    }
+
+    public ManagerSaveException getFailure() {
+        return failure;
+    }
+
+    // дожидается записи всего принятого и закрывает файл; следующая запись откроет его заново
+    public void release() {
+        try {
+            submit(new Request(null, 0, true, true, null, new CompletableFuture<>())).join();
+        } catch (CompletionException e) {
+            throw new ManagerSaveException(e.getCause().getMessage());
+        }
+    }
+
+    @Override
+    public void close() {
+        if (!running) {
+            return;
+        }
+
+        try {
+            if (failure == null) {
+                release();
+            }
+        } finally {
+            running = false;
+            thread.interrupt();
+        }
+    }
+
+    private CompletableFuture<Void> submit(Request request) {
+        if (!running) {
+            throw new ManagerSaveException("Запись журнала " + file.getName() + " уже остановлена");
+        }
+
+        if (failure != null) {
+            return CompletableFuture.failedFuture(failure);
+        }
+
+        queue.add(request);
+        return request.done();
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                Request first = unsyncedRecords > 0 && policy.isTimed()
+                        ? queue.poll(millisUntilSync(), TimeUnit.MILLISECONDS)
+                        : queue.take();
+
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch, MAX_BATCH - 1);
+                }
+            } catch (InterruptedException e) {
+                break;
+            }
+
+            process();
+            batch.clear();
+        }
+
+        closeChannel();
+    }
+
+    // пачка делится на части по запросам release и rotate: записи после них относятся уже к новому файлу
+    private void process() {
+        int start = 0;
+
+        for (int i = 0; i < batch.size(); i++) {
+            if (batch.get(i).release()) {
+                process(batch.subList(start, i + 1));
+                start = i + 1;
+            }
+        }
+
+        if (start < batch.size()) {
+            process(batch.subList(start, batch.size()));
+        }
+    }
+
+    private void process(List<Request> requests) {
+        if (failure != null) {
+            requests.forEach(request -> request.done().completeExceptionally(failure));
+            return;
+        }
+
+        boolean syncRequested = false;
+        boolean releaseRequested = false;
+
+        int length = 0;
+
+        for (Request request : requests) {
+            length += request.bytes() == null ? 0 : request.bytes().length;
+            unsyncedRecords += request.records();
+            if (request.rotateTo() == null) {
+                unsynced.add(request.done());
+            }
+            syncRequested |= request.sync();
+            releaseRequested |= request.release();
+        }
+
+        try {
+            if (length > 0) {
+                ByteBuffer buffer = ByteBuffer.allocate(length);
+                for (Request request : requests) {
+                    if (request.bytes() != null) {
+                        buffer.put(request.bytes());
+                    }
+                }
+                buffer.flip();
+
+                FileChannel out = getChannel();
+                while (buffer.hasRemaining()) {
+                    out.write(buffer);
+                }
+            }
+
+            long millisSinceSync = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - lastSync);
+            if (syncRequested || policy.isSyncRequired(unsyncedRecords, millisSinceSync)) {
+                if (channel != null) {
+                    channel.force(false);
+                }
+
+                lastSync = System.nanoTime();
+                unsyncedRecords = 0;
+                unsynced.forEach(done -> done.complete(null));
+                unsynced.clear();
+            }
+        } catch (IOException e) {
+            failure = new ManagerSaveException("Не удалось записать журнал " + file.getName());
+            unsynced.forEach(done -> done.completeExceptionally(failure));
+            unsynced.clear();
+            unsyncedRecords = 0;
+            releaseRequested = true;
+        }
+
+        if (releaseRequested) {
+            closeChannel();
+        }
+
+        Request last = requests.getLast();
+        if (last.rotateTo() != null) {
+            rename(last.rotateTo(), last.done());
+        }
+    }
+
+    private void rename(File segment, CompletableFuture<Void> done) {
+        if (failure == null && file.exists() && !file.renameTo(segment)) {
+            failure = new ManagerSaveException("Не удалось закрыть сегмент журнала " + file.getName());
+        }
+
+        if (failure != null) {
+            done.completeExceptionally(failure);
+        } else {
+            done.complete(null);
+        }
+    }
+
+    private long millisUntilSync() {
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - lastSync);
+        return Math.max(0, policy.getSyncEveryMillis() - elapsed);
+    }
+
+    private FileChannel getChannel() throws IOException {
+        if (channel == null) {
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND);
+        }
+
+        return channel;
+    }
+
+    private void closeChannel() {
+        if (channel == null) {
+            return;
+        }
+
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // данные уже сброшены или их будущие завершены с ошибкой
+        }
+        channel = null;
+    }
+}
@@ -2,8 +2,10 @@ package ru.practicum.javakanban.manager;
 
 import ru.practicum.javakanban.model.Task;
 
+import java.util.ArrayList;
 import java.util.List;
-
+import java.util.concurrent.Executor;
+import java.util.stream.Stream;
 
 public interface HistoryManager {
     void add(Task task);
@@ -11,4 +13,69 @@ public interface HistoryManager {
     List<Task> getHistory();
 
     void remove(int id);
+
+    // последние limit просмотров, от последнего к первому
+    default List<Task> getHistory(int limit) {
+        return getHistory().stream().limit(limit).toList();
+    }
+
+    /*
+    Следующая страница истории: до limit просмотров, сделанных раньше просмотра задачи afterId (курсор — id
+    последней задачи предыдущей страницы). Если задачи с таким id в истории уже нет, страница пуста; если её
+    просмотрели заново, она поднялась в начало истории и страница продолжится после неё.
+    */
+    default List<Task> getHistoryAfter(int afterId, int limit) {
+        List<Task> history = getHistory();
+        List<Task> page = new ArrayList<>();
+
+        for (int i = 0; i < history.size(); i++) {
+            if (history.get(i).getId() == afterId) {
+                history.subList(i + 1, Math.min(history.size(), i + 1 + limit)).forEach(page::add);
+                break;
+            }
+        }
+
+        return page;
+    }
+
+    // поток просмотров от последнего к первому; реализации могут обходить историю лениво, без копирования
+    default Stream<Task> streamHistory() {
+        return getHistory().stream();
+    }
+
+    /*
+    Контекст вызывающего потока, к которому относятся его просмотры (например, сессия пользователя). Обёртки,
+    которые записывают просмотр позже и в другом потоке (очередь событий, цикл событий), запоминают контекст в
+    момент просмотра и выполняют запись внутри него. У истории без привязки к потоку контекст пустой.
+    */
+    default Executor callerContext() {
+        return Runnable::run;
+    }
+
+    /*
+    Точка отката для пакета изменений: rollback возвращает историю к состоянию на момент вызова, а release
+    вызывается по завершении пакета в том же потоке, после отката или без него. По умолчанию запоминается
+    getHistory(), и при откате изменившаяся история пересобирается через remove и add (история отдаётся от
+    последнего просмотра к первому, поэтому добавляется в обратном порядке). Реализации, хранящие больше одного
+    списка (например, сессии), могут вместо копии записывать изменения пакета и откатывать только их.
+    */
+    default Checkpoint checkpoint() {
+        List<Task> saved = getHistory();
+
+        return () -> {
+            List<Task> history = getHistory();
+
+            if (!history.equals(saved)) {
+                history.forEach(task -> remove(task.getId()));
+                saved.reversed().forEach(this::add);
+            }
+        };
+    }
+
+    interface Checkpoint {
+        void rollback();
+
+        default void release() {
+        }
+    }
 }
@@ -4,10 +4,23 @@ import ru.practicum.javakanban.model.LinkedTaskList;
 import ru.practicum.javakanban.model.Task;
 
 import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class InMemoryHistoryManager implements HistoryManager {
 
-    private final LinkedTaskList historyList = new LinkedTaskList();
+    private final LinkedTaskList historyList;
+
+    public InMemoryHistoryManager() {
+        this(LinkedTaskList.UNBOUNDED);
+    }
+
+    // при переполнении из истории вытесняется задача, которую дольше всех не просматривали
+    public InMemoryHistoryManager(int capacity) {
+        historyList = new LinkedTaskList(capacity);
+    }
 
     @Override
     public void add(Task task) {
@@ -19,8 +32,32 @@ public class InMemoryHistoryManager implements HistoryManager {
         return historyList.getTasks();
     }
 
+    @Override
+    public List<Task> getHistory(int limit) {
+        return historyList.getTasks(limit);
+    }
+
+    @Override
+    public List<Task> getHistoryAfter(int afterId, int limit) {
+        return historyList.getTasksBefore(afterId, limit);
+    }
+
+    @Override
+    public Stream<Task> streamHistory() {
+        return StreamSupport.stream(Spliterators.spliterator(historyList.iterator(), historyList.size(),
+                Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL), false);
+    }
+
     @Override
     public void remove(int id) {
         historyList.remove(id);
     }
+
+    public int size() {
+        return historyList.size();
+    }
+
+    public int getCapacity() {
+        return historyList.getCapacity();
+    }
 }
@@ -1,23 +1,46 @@
 package ru.practicum.javakanban.manager;
 
+import ru.practicum.javakanban.exeptions.ManagerLoadException;
 import ru.practicum.javakanban.exeptions.ManagerPrioritizeException;
 import ru.practicum.javakanban.model.Epic;
+import ru.practicum.javakanban.model.Status;
 import ru.practicum.javakanban.model.Subtask;
 import ru.practicum.javakanban.model.Task;
+import ru.practicum.javakanban.model.TaskType;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
 
 public class InMemoryTaskManager implements TaskManager {
-    private final Map<Integer, Task> tasks = new HashMap<>();
-    private final Map<Integer, Epic> epics = new HashMap<>();
-    private final Map<Integer, Subtask> subtasks = new HashMap<>();
+    private final Map<Integer, Task> tasks;
+    private final Map<Integer, Epic> epics;
+    private final Map<Integer, Subtask> subtasks;
     private final HistoryManager historyManager;
     private final Comparator<Task> comparator = Comparator.comparing(task -> task.getStartTime());
-    private final Set<Task> prioritizedTasks = new TreeSet<>(comparator);
-    private int idCounter = 1;
+    private final NavigableSet<Task> prioritizedTasks = new TreeSet<>(comparator);
+    private final AtomicInteger idCounter = new AtomicInteger(1);
+    private boolean inTransaction;
+
+    private record TransactionSnapshot(Map<Integer, Task> tasks, Map<Integer, Epic> epics,
+                                       Map<Integer, Subtask> subtasks, Map<Epic, List<Subtask>> epicSubtasks,
+                                       Map<Epic, Status> epicStatuses, List<Task> prioritizedTasks,
+                                       HistoryManager.Checkpoint history, int idCounter) {
+    }
 
     public InMemoryTaskManager(HistoryManager historyManager) {
+        this(historyManager, new HashMap<>(), new HashMap<>(), new HashMap<>());
+    }
+
+    // наследники могут подставить свои реализации карт, например потокобезопасные
+    protected InMemoryTaskManager(HistoryManager historyManager, Map<Integer, Task> tasks, Map<Integer, Epic> epics,
+                                  Map<Integer, Subtask> subtasks) {
         this.historyManager = historyManager;
+        this.tasks = tasks;
+        this.epics = epics;
+        this.subtasks = subtasks;
     }
 
     @Override
@@ -25,6 +48,26 @@ public class InMemoryTaskManager implements TaskManager {
         return prioritizedTasks.stream().toList();
     }
 
+    @Override
+    public SortedSet<Task> getTasksStartingBetween(LocalDateTime from, LocalDateTime to) {
+        return startingBetween(prioritizedTasks, from, to);
+    }
+
+    @Override
+    public SortedSet<Task> getTasksOverlapping(LocalDateTime from, LocalDateTime to) {
+        return overlapping(prioritizedTasks, from, to);
+    }
+
+    @Override
+    public Optional<LocalDateTime> findFreeSlot(Duration duration, LocalDateTime from) {
+        return collectFreeSlots(prioritizedTasks, duration, from, null, 1).stream().findFirst();
+    }
+
+    @Override
+    public List<LocalDateTime> findFreeSlots(Duration duration, LocalDateTime from, LocalDateTime to, int limit) {
+        return collectFreeSlots(prioritizedTasks, duration, from, to, limit);
+    }
+
     protected boolean validateTimes(Task task1, Task task2) {
         if (task1.getStartTime() == null || task2.getStartTime() == null) {
             return true;
@@ -40,14 +83,34 @@ public class InMemoryTaskManager implements TaskManager {
     }
 
 
+    /*
+    Запланированные задачи не пересекаются между собой, поэтому новая задача может пересечься только с ближайшей
+    задачей, начинающейся не позже неё, или с ближайшей, начинающейся не раньше: более ранние заканчиваются до
+    начала первой соседки, а пересечение с более поздними означало бы пересечение и со второй. Прежняя версия
+    обновляемой задачи пропускается.
+    */
     protected boolean validateTask(Task task) {
-        if ((task.getStartTime() != null) && (!getPrioritizedTasks().isEmpty())) {
-            return getPrioritizedTasks().stream()
-                    .filter(someTask -> !someTask.equals(task))
-                    .allMatch(someTask -> validateTimes(task, someTask));
+        if (task.getStartTime() == null) {
+            return true;
+        }
+
+        Task before = prioritizedTasks.floor(task);
+        if (before != null && isSameTask(before, task)) {
+            before = prioritizedTasks.lower(before);
+        }
+
+        Task after = prioritizedTasks.ceiling(task);
+        if (after != null && isSameTask(after, task)) {
+            after = prioritizedTasks.higher(after);
         }
 
-        return true;
+        return (before == null || validateTimes(task, before)) && (after == null || validateTimes(task, after));
+    }
+
+    // новая задача получает id только после проверки, а задачи без id равны между собой по equals, поэтому
+    // прежнюю версию узнаём по совпадению непустого id; иначе параллельно создаваемые задачи пропустили бы друг друга
+    private static boolean isSameTask(Task scheduled, Task task) {
+        return scheduled == task || task.getId() != null && task.getId().equals(scheduled.getId());
     }
 
     protected void addPrioritizedTasks(Task task) throws ManagerPrioritizeException {
@@ -55,7 +118,17 @@ public class InMemoryTaskManager implements TaskManager {
             return;
         }
 
-        if (validateTask(task)) {
+        // в транзакции пересечения проверяются один раз при её завершении, здесь ловятся только совпадения начала
+        if (inTransaction) {
+            Task sameStart = prioritizedTasks.ceiling(task);
+
+            if (sameStart != null && comparator.compare(sameStart, task) == 0 && !isSameTask(sameStart, task)) {
+                throw new ManagerPrioritizeException("Задача не может быть создана/обновлена. Это время уже " +
+                        "занято другой задачей.");
+            }
+
+            prioritizedTasks.add(task);
+        } else if (validateTask(task)) {
             prioritizedTasks.add(task);
         } else {
             throw new ManagerPrioritizeException("Задача не может быть создана/обновлена. Это время уже занято " +
@@ -63,11 +136,15 @@ public class InMemoryTaskManager implements TaskManager {
         }
     }
 
+    protected void removePrioritizedTask(Task task) {
+        prioritizedTasks.remove(task);
+    }
+
     @Override
     public void createTask(Task task) throws ManagerPrioritizeException {
         if (task.getStartTime() != null) {
             addPrioritizedTasks(task);
-            task.setId(idCounter++);
+            task.setId(idCounter.getAndIncrement());
             tasks.put(task.getId(), task);
         } else {
             throw new IllegalArgumentException("Задача не может быть создана без даты начала");
@@ -76,7 +153,7 @@ public class InMemoryTaskManager implements TaskManager {
 
     @Override
     public void createEpic(Epic epic) {
-        epic.setId(idCounter++);
+        epic.setId(idCounter.getAndIncrement());
         epics.put(epic.getId(), epic);
     }
 
@@ -84,11 +161,10 @@ public class InMemoryTaskManager implements TaskManager {
     public void createSubtask(Subtask subtask, int epicId) throws ManagerPrioritizeException {
         if (subtask.getStartTime() != null) {
             addPrioritizedTasks(subtask);
-            subtask.setId(idCounter++);
+            subtask.setId(idCounter.getAndIncrement());
             Epic epic = epics.get(epicId);
 
-            List<Subtask> epicSubtasks = epic.getSubtasks();
-            epicSubtasks.add(subtask);
+            epic.addSubtask(subtask);
 
             subtask.setEpicId(epic.getId());
             subtasks.put(subtask.getId(), subtask);
@@ -116,7 +192,10 @@ public class InMemoryTaskManager implements TaskManager {
 
     @Override
     public void updateEpic(Epic newEpic, Integer id) {
-        newEpic.setSubtasks(epics.get(id).getSubtasks());
+        Epic oldEpic = epics.get(id);
+        if (newEpic != oldEpic) {
+            newEpic.setSubtasks(oldEpic.getSubtasks());
+        }
         epics.remove(id);
 
         newEpic.setId(id);
@@ -166,31 +245,36 @@ public class InMemoryTaskManager implements TaskManager {
 
     @Override
     public void deleteAllTasks() {
-
-        List<Task> tasksForDelete = new ArrayList<>(tasks.values());
-
-        tasksForDelete.stream().forEach(task -> deleteTask(task.getId()));
-
+        tasks.keySet().forEach(historyManager::remove);
+        prioritizedTasks.removeIf(task -> task.getType() == TaskType.TASK);
         tasks.clear();
     }
 
     @Override
     public void deleteAllEpics() {
-        List<Epic> epicsForDelete = new ArrayList<>(epics.values());
-        epicsForDelete.stream().forEach(epic -> deleteEpic(epic.getId()));
+        subtasks.keySet().forEach(historyManager::remove);
+        epics.keySet().forEach(historyManager::remove);
+        prioritizedTasks.removeIf(task -> task.getType() == TaskType.SUBTASK);
+        subtasks.clear();
+        epics.clear();
     }
 
     @Override
     public void deleteAllSubtasks() {
-        List<Epic> allEpics = getAllEpics();
-        allEpics.stream().forEach(epic -> {
+        subtasks.keySet().forEach(historyManager::remove);
+        prioritizedTasks.removeIf(task -> task.getType() == TaskType.SUBTASK);
+        subtasks.clear();
+
+        for (Epic epic : epics.values()) {
             epic.clearSubtasks();
             epic.updateStatus();
-            updateEpic(epic, epic.getId());
-        });
+            epic.updateTimes();
+        }
+    }
 
-        List<Subtask> subtasksForDelete = new ArrayList<>(subtasks.values());
-        subtasksForDelete.stream().forEach(subtask -> deleteSubtask(subtask.getId()));
+    @Override
+    public void deleteWhere(Predicate<Task> filter) {
+        purge(filter);
     }
 
     @Override
@@ -228,7 +312,7 @@ public class InMemoryTaskManager implements TaskManager {
         if (tasks.containsKey(id)) {
             historyManager.remove(id);
             if (tasks.get(id).getStartTime() != null) {
-                prioritizedTasks.remove(tasks.get(id));
+                removePrioritizedTask(tasks.get(id));
             }
             tasks.remove(id);
         }
@@ -243,7 +327,7 @@ public class InMemoryTaskManager implements TaskManager {
 
             epicSubtasks.stream().forEach(subtask -> {
                 if (subtask.getStartTime() != null) {
-                    prioritizedTasks.remove(subtask);
+                    removePrioritizedTask(subtask);
                 }
 
                 historyManager.remove(subtask.getId());
@@ -265,7 +349,7 @@ public class InMemoryTaskManager implements TaskManager {
             epic.updateStatus();
             historyManager.remove(id);
             if (subtasks.get(id).getStartTime() != null) {
-                prioritizedTasks.remove(subtask);
+                removePrioritizedTask(subtask);
             }
 
             subtasks.remove(id);
@@ -278,6 +362,57 @@ public class InMemoryTaskManager implements TaskManager {
         return historyManager.getHistory();
     }
 
+    @Override
+    public List<Task> getHistory(int limit) {
+        return historyManager.getHistory(limit);
+    }
+
+    @Override
+    public List<Task> getHistoryAfter(int afterId, int limit) {
+        return historyManager.getHistoryAfter(afterId, limit);
+    }
+
+    /*
+    Пакет выполняется над живым состоянием без проверки каждой задачи на пересечения: перед началом запоминаются
+    карты, списки подзадач и статусы эпиков, приоритизация и история, а после выполнения список приоритизации
+    проверяется одним проходом. Если пакет выбросил исключение или задачи пересеклись, состояние
+    восстанавливается из снимка. Вложенный вызов выполняется в рамках внешней транзакции.
+    */
+    @Override
+    public void runInTransaction(TaskBatch batch) throws ManagerPrioritizeException {
+        if (inTransaction) {
+            batch.run(this);
+            return;
+        }
+
+        TransactionSnapshot snapshot = takeSnapshot();
+        inTransaction = true;
+
+        try {
+            batch.run(this);
+            validatePrioritizedTasks();
+        } catch (ManagerPrioritizeException | RuntimeException e) {
+            rollback(snapshot);
+            throw e;
+        } finally {
+            inTransaction = false;
+            snapshot.history().release();
+        }
+    }
+
+    protected boolean isInTransaction() {
+        return inTransaction;
+    }
+
+    protected HistoryManager getHistoryManager() {
+        return historyManager;
+    }
+
+    // копия списка приоритизации с тем же порядком, строится за линейное время
+    protected NavigableSet<Task> copyPrioritizedTasks() {
+        return Collections.unmodifiableNavigableSet(new TreeSet<>(prioritizedTasks));
+    }
+
     @Override
     public Map<Integer, Task> getTasks() {
         return tasks;
@@ -293,11 +428,251 @@ public class InMemoryTaskManager implements TaskManager {
         return subtasks;
     }
 
+    /*
+    Восстанавливает сохранённые задачи с их исходными id: карты, список приоритизации и подзадачи эпиков
+    заполняются напрямую, без повторной проверки каждой задачи. Пересечения по времени проверяются один раз
+    проходом по отсортированному списку: если соседние задачи не пересекаются, то не пересекаются и никакие.
+    */
+    protected void restore(Collection<Task> restored) {
+        Set<Integer> epicIds = new HashSet<>(epics.keySet());
+        restored.stream()
+                .filter(task -> task.getType() == TaskType.EPIC)
+                .forEach(epic -> epicIds.add(epic.getId()));
+
+        List<Task> scheduled = new ArrayList<>();
+        for (Task task : restored) {
+            boolean linked = task.getType() != TaskType.SUBTASK || epicIds.contains(((Subtask) task).getEpicId());
+
+            if (task.getType() != TaskType.EPIC && task.getStartTime() != null && linked) {
+                scheduled.add(task);
+            }
+        }
+        scheduled.sort(comparator);
+
+        for (int i = 1; i < scheduled.size(); i++) {
+            if (!validateTimes(scheduled.get(i - 1), scheduled.get(i))) {
+                throw new ManagerLoadException("Задачи " + scheduled.get(i - 1).getId() + " и " +
+                        scheduled.get(i).getId() + " пересекаются по времени");
+            }
+        }
+
+        for (Task task : restored) {
+            switch (task.getType()) {
+                case TASK -> tasks.put(task.getId(), task);
+                case EPIC -> epics.put(task.getId(), (Epic) task);
+            }
+            idCounter.accumulateAndGet(task.getId() + 1, Math::max);
+        }
+
+        Set<Epic> changedEpics = new HashSet<>();
+        for (Task task : restored) {
+            if (task.getType() == TaskType.SUBTASK) {
+                Subtask subtask = (Subtask) task;
+                Epic epic = epics.get(subtask.getEpicId());
+
+                if (epic != null) {
+                    epic.addSubtask(subtask);
+                    subtasks.put(subtask.getId(), subtask);
+                    changedEpics.add(epic);
+                }
+            }
+        }
+
+        for (Epic epic : changedEpics) {
+            epic.updateStatus();
+            epic.updateTimes();
+        }
+
+        prioritizedTasks.addAll(scheduled);
+    }
+
+    protected static SortedSet<Task> startingBetween(NavigableSet<Task> schedule, LocalDateTime from,
+                                                     LocalDateTime to) {
+        return Collections.unmodifiableSortedSet(schedule.subSet(probe(from), true, probe(to), false));
+    }
+
+    // задачи не пересекаются, поэтому из начавшихся до from в окно может попасть только ближайшая
+    protected static SortedSet<Task> overlapping(NavigableSet<Task> schedule, LocalDateTime from, LocalDateTime to) {
+        Task first = schedule.floor(probe(from));
+
+        if (first == null || !first.getEndTime().isAfter(from)) {
+            first = probe(from);
+        }
+
+        return Collections.unmodifiableSortedSet(schedule.subSet(first, true, probe(to), false));
+    }
+
+    /*
+    Промежутки ищутся обходом запланированных задач от ближайшей к from: задача, начавшаяся раньше, может сдвинуть
+    начало поиска на своё окончание, дальше кандидат либо помещается до начала следующей задачи, либо
+    переносится на её окончание. Обходятся только задачи от from до первого подходящего промежутка.
+    Две задачи не могут начинаться одновременно, поэтому кандидат, совпавший с началом задачи нулевой
+    длительности, сдвигается на наименьший шаг времени.
+    */
+    protected static List<LocalDateTime> collectFreeSlots(NavigableSet<Task> schedule, Duration duration,
+                                                          LocalDateTime from, LocalDateTime to, int limit) {
+        if (duration == null || duration.isNegative() || duration.isZero()) {
+            throw new IllegalArgumentException("Длительность промежутка должна быть положительной");
+        }
+
+        List<LocalDateTime> slots = new ArrayList<>();
+        Task probe = probe(from);
+        LocalDateTime candidate = from;
+
+        Task before = schedule.floor(probe);
+        if (before != null) {
+            candidate = skip(before, candidate);
+        }
+
+        Iterator<Task> following = schedule.tailSet(probe, false).iterator();
+        Task next = following.hasNext() ? following.next() : null;
+
+        while (slots.size() < limit) {
+            LocalDateTime end = candidate.plus(duration);
+
+            if (to != null && end.isAfter(to)) {
+                break;
+            }
+
+            if (next == null || !end.isAfter(next.getStartTime())) {
+                slots.add(candidate);
+                candidate = end;
+            } else {
+                candidate = skip(next, candidate);
+                next = following.hasNext() ? following.next() : null;
+            }
+        }
+
+        return slots;
+    }
+
+    // ближайшее к candidate время начала, при котором новая задача не пересекается с task
+    private static LocalDateTime skip(Task task, LocalDateTime candidate) {
+        LocalDateTime start = task.getEndTime().isAfter(candidate) ? task.getEndTime() : candidate;
+
+        return task.getStartTime().equals(start) ? start.plusNanos(1) : start;
+    }
+
+    // задача-метка для поиска в списке приоритизации по времени начала
+    private static Task probe(LocalDateTime startTime) {
+        return new Task("", "", Duration.ZERO, startTime);
+    }
+
+    /*
+    Удаляет все задачи, эпики и подзадачи, подходящие под фильтр, за один проход по каждой карте; вместе с эпиком
+    удаляются все его подзадачи. Эпики, у которых удалили часть подзадач, пересчитываются по одному разу.
+    Возвращает удалённые задачи.
+    */
+    protected List<Task> purge(Predicate<Task> filter) {
+        List<Task> removed = new ArrayList<>();
+
+        for (Iterator<Epic> iterator = epics.values().iterator(); iterator.hasNext(); ) {
+            Epic epic = iterator.next();
+
+            if (filter.test(epic)) {
+                iterator.remove();
+                removed.add(epic);
+                epic.getSubtasks().forEach(subtask -> subtasks.remove(subtask.getId()));
+                removed.addAll(epic.getSubtasks());
+            }
+        }
+
+        Set<Subtask> removedSubtasks = new HashSet<>();
+        for (Iterator<Subtask> iterator = subtasks.values().iterator(); iterator.hasNext(); ) {
+            Subtask subtask = iterator.next();
+
+            if (filter.test(subtask)) {
+                iterator.remove();
+                removed.add(subtask);
+                removedSubtasks.add(subtask);
+            }
+        }
+
+        if (!removedSubtasks.isEmpty()) {
+            Set<Epic> changedEpics = new HashSet<>();
+            removedSubtasks.forEach(subtask -> changedEpics.add(epics.get(subtask.getEpicId())));
+
+            for (Epic epic : changedEpics) {
+                epic.removeSubtasks(removedSubtasks);
+                epic.updateStatus();
+                epic.updateTimes();
+            }
+        }
+
+        tasks.values().removeIf(task -> {
+            if (filter.test(task)) {
+                removed.add(task);
+                return true;
+            }
+
+            return false;
+        });
+
+        for (Task task : removed) {
+            historyManager.remove(task.getId());
+            if (task.getType() != TaskType.EPIC && task.getStartTime() != null) {
+                removePrioritizedTask(task);
+            }
+        }
+
+        return removed;
+    }
+
+    private TransactionSnapshot takeSnapshot() {
+        Map<Epic, List<Subtask>> epicSubtasks = new HashMap<>();
+        Map<Epic, Status> epicStatuses = new HashMap<>();
+
+        for (Epic epic : epics.values()) {
+            epicSubtasks.put(epic, List.copyOf(epic.getSubtasks()));
+            epicStatuses.put(epic, epic.getStatus());
+        }
+
+        return new TransactionSnapshot(new HashMap<>(tasks), new HashMap<>(epics), new HashMap<>(subtasks),
+                epicSubtasks, epicStatuses, new ArrayList<>(prioritizedTasks), historyManager.checkpoint(),
+                idCounter.get());
+    }
+
+    private void rollback(TransactionSnapshot snapshot) {
+        tasks.clear();
+        tasks.putAll(snapshot.tasks());
+        epics.clear();
+        epics.putAll(snapshot.epics());
+        subtasks.clear();
+        subtasks.putAll(snapshot.subtasks());
+
+        // подзадачи эпика меняются на месте, поэтому их состав тоже возвращается из снимка
+        for (Map.Entry<Epic, List<Subtask>> entry : snapshot.epicSubtasks().entrySet()) {
+            Epic epic = entry.getKey();
+            epic.setSubtasks(entry.getValue());
+            epic.setStatus(snapshot.epicStatuses().get(epic));
+            epic.updateTimes();
+        }
+
+        prioritizedTasks.clear();
+        prioritizedTasks.addAll(snapshot.prioritizedTasks());
+
+        snapshot.history().rollback();
+
+        idCounter.set(snapshot.idCounter());
+    }
+
+    // в списке, отсортированном по началу, достаточно сравнить соседние задачи
+    private void validatePrioritizedTasks() throws ManagerPrioritizeException {
+        Task previous = null;
+
+        for (Task task : prioritizedTasks) {
+            if (previous != null && !validateTimes(previous, task)) {
+                throw new ManagerPrioritizeException("Задачи " + previous.getId() + " и " + task.getId() +
+                        " пересекаются по времени");
+            }
+            previous = task;
+        }
+    }
+
     protected void createSubtaskForUpdate(Subtask subtask, int epicId) {
         Epic epic = epics.get(epicId);
 
-        List<Subtask> epicSubtasks = epic.getSubtasks();
-        epicSubtasks.add(subtask);
+        epic.addSubtask(subtask);
 
         subtask.setEpicId(epic.getId());
         subtasks.put(subtask.getId(), subtask);
@@ -1,6 +1,7 @@
 package ru.practicum.javakanban.manager;
 
 import java.io.File;
+import java.time.Duration;
 
 public class Managers {
 
@@ -8,12 +9,60 @@ public class Managers {
         return new InMemoryTaskManager(getDefaultHistory());
     }
 
+    // одна блокировка на все изменения; для параллельных писателей см. getStriped
+    public static TaskManager getConcurrent() {
+        return new ConcurrentTaskManager(new InMemoryTaskManager(new ConcurrentHistoryManager(
+                getDefaultHistory())));
+    }
+
+    public static TaskManager getReadOptimized() {
+        return new CopyOnWriteTaskManager(getDefaultHistory());
+    }
+
+    public static TaskManager getStriped() {
+        return new StripedTaskManager(getDefaultHistory());
+    }
+
+    public static EventLoopTaskManager getEventLoop() {
+        return new EventLoopTaskManager(getDefault());
+    }
+
+    public static EventLoopAsyncTaskManager getAsync() {
+        return new EventLoopAsyncTaskManager(getDefault());
+    }
+
+    public static EventLoopAsyncTaskManager getAsync(File file, DurabilityPolicy durabilityPolicy) {
+        return new EventLoopAsyncTaskManager(new FileBackedTaskManager(getDefaultHistory(), file, StorageMode.JOURNAL,
+                CompactionPolicy.defaultPolicy(), durabilityPolicy));
+    }
+
     public static HistoryManager getDefaultHistory() {
         return new InMemoryHistoryManager();
     }
 
+    public static HistoryManager getBoundedHistory(int capacity) {
+        return new InMemoryHistoryManager(capacity);
+    }
+
+    public static SessionHistoryManager getSessionHistory(int sessionCapacity, int totalBudget,
+                                                          Duration idleTimeout) {
+        return new SessionHistoryManager(sessionCapacity, totalBudget, idleTimeout);
+    }
+
+    public static PersistentHistoryManager getPersistentHistory(File logFile) {
+        return new PersistentHistoryManager(getDefaultHistory(), logFile);
+    }
+
+    public static ArrayHistoryManager getArrayHistory(int capacity) {
+        return new ArrayHistoryManager(capacity);
+    }
+
     public static FileBackedTaskManager getFileBacked(File file) {
         return new FileBackedTaskManager(getDefaultHistory(), file);
     }
 
+    public static FileBackedTaskManager getJournaled(File file) {
+        return new FileBackedTaskManager(getDefaultHistory(), file, StorageMode.JOURNAL);
+    }
+
 }
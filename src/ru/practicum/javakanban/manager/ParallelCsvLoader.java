@@ -0,0 +1,102 @@
+package ru.practicum.javakanban.manager;
+
+import ru.practicum.javakanban.exeptions.ManagerLoadException;
+import ru.practicum.javakanban.model.Task;
+
+import java.io.CharArrayReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+Файл отображается в память и делится на куски по границам записей. Граница ищется одним быстрым проходом
+по байтам с учётом кавычек (перевод строки внутри поля в кавычках границей не считается), после чего куски
+разбираются параллельно в общем ForkJoinPool и склеиваются в исходном порядке.
+*/
+public class ParallelCsvLoader {
+    private static final int MIN_CHUNK_BYTES = 1024 * 1024;
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private ParallelCsvLoader() {
+    }
+
+    public static List<Task> read(File file, int parallelism) {
+        return read(file, parallelism, MIN_CHUNK_BYTES);
+    }
+
+    static List<Task> read(File file, int parallelism, int minChunkBytes) {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+
+            if (size > Integer.MAX_VALUE) {
+                throw new ManagerLoadException("Файл " + file.getName() + " слишком велик для параллельной загрузки");
+            }
+
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            List<int[]> chunks = split(mapped, (int) size, parallelism, minChunkBytes);
+
+            return chunks.parallelStream()
+                    .map(chunk -> parse(mapped.slice(chunk[0], chunk[1] - chunk[0])))
+                    .flatMap(List::stream)
+                    .toList();
+        } catch (IOException e) {
+            throw new ManagerLoadException("Внимание: рак на горе свистнул!");
+        } catch (UncheckedIOException e) {
+            throw new ManagerLoadException("Не удалось разобрать файл " + file.getName());
+        }
+    }
+
+    // возвращает пары [начало, конец) кусков без строки заголовка
+    private static List<int[]> split(ByteBuffer bytes, int size, int parallelism, int minChunkBytes) {
+        int chunkCount = Math.max(1, parallelism * CHUNKS_PER_THREAD);
+        int target = Math.max(minChunkBytes, size / chunkCount);
+        List<int[]> chunks = new ArrayList<>();
+        boolean quoted = false;
+        int start = -1;
+
+        for (int i = 0; i < size; i++) {
+            byte b = bytes.get(i);
+
+            if (b == '"') {
+                quoted = !quoted;
+            } else if (b == '\n' && !quoted) {
+                if (start < 0) {
+                    start = i + 1;
+                } else if (i + 1 - start >= target) {
+                    chunks.add(new int[]{start, i + 1});
+                    start = i + 1;
+                }
+            }
+        }
+
+        if (start >= 0 && start < size) {
+            chunks.add(new int[]{start, size});
+        }
+
+        return chunks;
+    }
+
+    private static List<Task> parse(ByteBuffer chunk) {
+        CharBuffer chars = StandardCharsets.UTF_8.decode(chunk);
+        List<Task> tasks = new ArrayList<>();
+
+        try (TaskCsvReader reader = new TaskCsvReader(new CharArrayReader(chars.array(),
+                chars.arrayOffset() + chars.position(), chars.remaining()))) {
+            while (reader.next()) {
+                tasks.add(reader.readTask(0));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return tasks;
+    }
+}
@@ -0,0 +1,188 @@
+package ru.practicum.javakanban.manager;
+
+import ru.practicum.javakanban.model.Task;
+
+import java.io.File;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.function.IntFunction;
+import java.util.stream.Stream;
+
+/*
+История, которая переживает перезапуск. Каждый просмотр и удаление дописываются в ViewLog с отметкой времени,
+а сама упорядоченная история хранится в обёрнутом менеджере истории. После загрузки задач restore проигрывает
+журнал по порядку, находя задачи по id; задачи, которых уже нет, пропускаются. Запросы по окну времени идут по
+индексу журнала: двоичный поиск границы и обход только записей окна. Откат пакета изменений не пишет в журнал
+новых записей, а обрезает его до точки отката, поэтому время просмотров не искажается, а после перезапуска
+история совпадает с откатившейся историей в памяти.
+Чтобы журнал не рос бесконечно, он сжимается до последних просмотров задач, которые ещё есть в истории, когда
+записей накопилось больше COMPACTION_THRESHOLD и вдвое больше, чем просмотренных задач: сжатие стоит линейно от
+размера журнала и выполняется после его удвоения, то есть в среднем за O(1) на запись. После restore
+проверяется то же условие, поэтому следующая загрузка начинается со сжатого состояния. Пока открыта точка
+отката, журнал не сжимается, иначе её позиция для обрезки потеряла бы смысл.
+*/
+public class PersistentHistoryManager implements HistoryManager, AutoCloseable {
+    private static final int COMPACTION_THRESHOLD = 1024;
+
+    private final HistoryManager historyManager;
+    private final ViewLog viewLog;
+    private final Clock clock;
+    private final Map<Integer, Task> viewedTasks = new HashMap<>();
+    private int openCheckpoints;
+
+    public PersistentHistoryManager(HistoryManager historyManager, File logFile) {
+        this(historyManager, logFile, Clock.systemUTC());
+    }
+
+    public PersistentHistoryManager(HistoryManager historyManager, File logFile, Clock clock) {
+        this.historyManager = historyManager;
+        this.viewLog = new ViewLog(logFile);
+        this.clock = clock;
+    }
+
+    @Override
+    public void add(Task task) {
+        historyManager.add(task);
+        viewedTasks.put(task.getId(), task);
+        viewLog.appendView(task.getId(), clock.millis());
+        compactIfGrown();
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        return historyManager.getHistory();
+    }
+
+    @Override
+    public List<Task> getHistory(int limit) {
+        return historyManager.getHistory(limit);
+    }
+
+    @Override
+    public List<Task> getHistoryAfter(int afterId, int limit) {
+        return historyManager.getHistoryAfter(afterId, limit);
+    }
+
+    @Override
+    public Stream<Task> streamHistory() {
+        return historyManager.streamHistory();
+    }
+
+    @Override
+    public Executor callerContext() {
+        return historyManager.callerContext();
+    }
+
+    @Override
+    public Checkpoint checkpoint() {
+        Checkpoint checkpoint = historyManager.checkpoint();
+        Map<Integer, Task> savedViewedTasks = new HashMap<>(viewedTasks);
+        int savedLogSize = viewLog.size();
+        openCheckpoints++;
+
+        return new Checkpoint() {
+            @Override
+            public void rollback() {
+                checkpoint.rollback();
+                viewedTasks.clear();
+                viewedTasks.putAll(savedViewedTasks);
+                viewLog.truncate(savedLogSize);
+            }
+
+            @Override
+            public void release() {
+                openCheckpoints--;
+                checkpoint.release();
+            }
+        };
+    }
+
+    @Override
+    public void remove(int id) {
+        historyManager.remove(id);
+
+        if (viewedTasks.remove(id) != null) {
+            viewLog.appendRemoval(id, clock.millis());
+            compactIfGrown();
+        }
+    }
+
+    // восстанавливает историю из журнала; resolver возвращает задачу по id или null, если её больше нет
+    public void restore(IntFunction<Task> resolver) {
+        for (int i = 0; i < viewLog.size(); i++) {
+            int id = viewLog.getId(i);
+
+            if (viewLog.isRemoval(i)) {
+                historyManager.remove(id);
+                viewedTasks.remove(id);
+                continue;
+            }
+
+            Task task = resolver.apply(id);
+            if (task != null) {
+                historyManager.add(task);
+                viewedTasks.put(id, task);
+            }
+        }
+
+        compactIfGrown();
+    }
+
+    // оставляет в журнале только последние просмотры задач, которые есть в истории
+    public void compact() {
+        viewLog.compact(viewedTasks::containsKey);
+    }
+
+    // задачи, просмотренные в [from, to), от последнего просмотра к первому, без повторов и без удалённых
+    public List<Task> getViewedBetween(Instant from, Instant to) {
+        int first = viewLog.indexOf(from.toEpochMilli());
+        int last = viewLog.indexOf(to.toEpochMilli());
+        Set<Integer> seen = new HashSet<>();
+        List<Task> viewed = new ArrayList<>();
+
+        for (int i = last - 1; i >= first; i--) {
+            if (viewLog.isRemoval(i)) {
+                continue;
+            }
+
+            Task task = viewedTasks.get(viewLog.getId(i));
+            if (task != null && seen.add(task.getId())) {
+                viewed.add(task);
+            }
+        }
+
+        return viewed;
+    }
+
+    // например, задачи, просмотренные за последний час: getViewedWithin(Duration.ofHours(1))
+    public List<Task> getViewedWithin(Duration window) {
+        Instant now = clock.instant();
+
+        return getViewedBetween(now.minus(window), now.plusMillis(1));
+    }
+
+    public File getLogFile() {
+        return viewLog.getFile();
+    }
+
+    @Override
+    public void close() {
+        viewLog.close();
+    }
+
+    private void compactIfGrown() {
+        int size = viewLog.size();
+
+        if (openCheckpoints == 0 && size > COMPACTION_THRESHOLD && size / 2 > viewedTasks.size()) {
+            compact();
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package ru.practicum.javakanban.manager;
+
+import ru.practicum.javakanban.model.Epic;
+import ru.practicum.javakanban.model.Subtask;
+import ru.practicum.javakanban.model.Task;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/*
+Состояние, опубликованное писателем для читателей: потокобезопасные карты и расписание, которые читаются без
+блокировок. Публикуются только записи с изменёнными id, поэтому публикация стоит столько, сколько записей
+изменилось, а не размер всей доски. Задачи и подзадачи при изменении заменяются новыми объектами и публикуются
+как есть, а эпики, которые писатель меняет на месте, заменяются копиями, не связанными с его картами. Каждая
+запись видна читателю целиком, но изменения одной публикации появляются по очереди, а не одновременно.
+Публикует один писатель за раз.
+*/
+final class PublishedState {
+    private final Map<Integer, Task> tasks = new ConcurrentHashMap<>();
+    private final Map<Integer, Epic> epics = new ConcurrentHashMap<>();
+    private final Map<Integer, Subtask> subtasks = new ConcurrentHashMap<>();
+    private final NavigableSet<Task> schedule = new ConcurrentSkipListSet<>(Comparator.comparing(Task::getStartTime));
+    private final Map<Integer, Task> tasksView = Collections.unmodifiableMap(tasks);
+    private final Map<Integer, Epic> epicsView = Collections.unmodifiableMap(epics);
+    private final Map<Integer, Subtask> subtasksView = Collections.unmodifiableMap(subtasks);
+    private final NavigableSet<Task> scheduleView = Collections.unmodifiableNavigableSet(schedule);
+
+    Map<Integer, Task> getTasks() {
+        return tasksView;
+    }
+
+    Map<Integer, Epic> getEpics() {
+        return epicsView;
+    }
+
+    Map<Integer, Subtask> getSubtasks() {
+        return subtasksView;
+    }
+
+    NavigableSet<Task> getSchedule() {
+        return scheduleView;
+    }
+
+    /*
+    Сначала из расписания убираются прежние версии всех изменённых задач, а затем добавляются новые: у задач
+    в расписании уникальное начало, и задача, занявшая освободившееся время, иначе совпала бы с ещё не убранной.
+    Эпик публикуется заново, если изменился он сам или любая его подзадача; вместе с удалённым эпиком снимаются
+    и его подзадачи.
+    */
+    void publish(Set<Integer> changedTasks, Set<Integer> changedEpics, Set<Integer> changedSubtasks,
+                 Map<Integer, Task> currentTasks, Map<Integer, Epic> currentEpics,
+                 Map<Integer, Subtask> currentSubtasks) {
+        Set<Integer> epicIds = new HashSet<>(changedEpics);
+        Set<Integer> subtaskIds = new HashSet<>(changedSubtasks);
+
+        for (Integer id : changedEpics) {
+            Epic published = epics.get(id);
+
+            if (published != null && !currentEpics.containsKey(id)) {
+                published.getSubtasks().forEach(subtask -> subtaskIds.add(subtask.getId()));
+            }
+        }
+
+        for (Integer id : changedTasks) {
+            unschedule(tasks.get(id), currentTasks.get(id));
+        }
+        for (Integer id : subtaskIds) {
+            Subtask published = subtasks.get(id);
+            Subtask current = currentSubtasks.get(id);
+
+            unschedule(published, current);
+            if (published != null) {
+                epicIds.add(published.getEpicId());
+            }
+            if (current != null) {
+                epicIds.add(current.getEpicId());
+            }
+        }
+
+        for (Integer id : changedTasks) {
+            republish(tasks, id, currentTasks.get(id));
+        }
+        for (Integer id : subtaskIds) {
+            republish(subtasks, id, currentSubtasks.get(id));
+        }
+        for (Integer id : epicIds) {
+            Epic epic = currentEpics.get(id);
+
+            if (epic == null) {
+                epics.remove(id);
+            } else if (!isPublished(epic, epics.get(id))) {
+                epics.put(id, detach(epic));
+            }
+        }
+    }
+
+    private void unschedule(Task published, Task current) {
+        if (published != null && published != current && published.getStartTime() != null) {
+            schedule.remove(published);
+        }
+    }
+
+    private <T extends Task> void republish(Map<Integer, T> published, Integer id, T current) {
+        if (current == null) {
+            published.remove(id);
+            return;
+        }
+
+        if (published.put(id, current) != current && current.getStartTime() != null) {
+            schedule.add(current);
+        }
+    }
+
+    // например, после отката пакета эпик совпадает с опубликованной копией, и она остаётся прежней
+    private static boolean isPublished(Epic epic, Epic published) {
+        if (published == null || !Objects.equals(epic.getName(), published.getName())
+                || !Objects.equals(epic.getDescription(), published.getDescription())
+                || epic.getStatus() != published.getStatus()
+                || epic.getSubtasks().size() != published.getSubtasks().size()) {
+            return false;
+        }
+
+        Iterator<Subtask> publishedIterator = published.getSubtasks().iterator();
+        for (Subtask subtask : epic.getSubtasks()) {
+            if (subtask != publishedIterator.next()) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    // эпик меняется писателем на месте, поэтому читателям отдаётся копия с собственными подзадачами и расчётами
+    private static Epic detach(Epic epic) {
+        Epic copy = new Epic(epic.getName(), epic.getDescription(), epic.getId(), epic.getStatus());
+        copy.setSubtasks(epic.getSubtasks());
+        copy.updateTimes();
+
+        return copy;
+    }
+}
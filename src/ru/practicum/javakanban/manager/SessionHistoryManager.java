@@ -0,0 +1,335 @@
+package ru.practicum.javakanban.manager;
+
+import ru.practicum.javakanban.model.LinkedTaskList;
+import ru.practicum.javakanban.model.Node;
+import ru.practicum.javakanban.model.Task;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/*
+Отдельная история для каждого пользователя (сессии) одного менеджера. Менеджер задач видит обычный
+HistoryManager: просмотры и getHistory() относятся к сессии, привязанной к текущему потоку через withSession,
+а вне её — к анонимной сессии. Обёртки, записывающие просмотры в другом потоке, берут сессию из callerContext.
+Удаление задачи убирает её из всех сессий. Точка отката пакета ничего не копирует: пока пакет открыт, история
+записывает только его собственные изменения — убранные им просмотры во всех сессиях и просмотры в сессии
+пакета — и при откате возвращает на место только их. Просмотр встаёт обратно по своему номеру среди
+оставшихся, поэтому просмотры других пользователей, сделанные во время неудачного пакета, сохраняются.
+Пакет узнаётся по потоку, где взята точка отката, и по контексту callerContext, взятому в этом потоке.
+Вытеснение сессий по простою и бюджету не откатывается.
+Память ограничена с трёх сторон: у сессии есть ёмкость с вытеснением давних просмотров, сессии без обращений
+дольше idleTimeout удаляются, а при превышении общего бюджета записей удаляются сессии, к которым дольше всех
+не обращались. Сессии хранятся в порядке обращений, поэтому обе чистки снимают их с головы без полного обхода.
+*/
+public class SessionHistoryManager implements HistoryManager {
+    public static final String ANONYMOUS = "";
+
+    private final int sessionCapacity;
+    private final int totalBudget;
+    private final Duration idleTimeout;
+    private final Clock clock;
+    private final Map<String, Session> sessions = new LinkedHashMap<>(16, 0.75f, true);
+    private final ThreadLocal<String> currentUser = new ThreadLocal<>();
+    private final ThreadLocal<Journal> currentJournal = new ThreadLocal<>();
+    private int totalSize;
+
+    private record SavedView(Task task, long stamp) {
+    }
+
+    private static class Session {
+        private final LinkedTaskList history;
+        private long lastAccess;
+        private boolean discarded;
+
+        private Session(int capacity) {
+            history = new LinkedTaskList(capacity);
+        }
+    }
+
+    // изменения открытого пакета; откат выполняет их обратные действия от последнего к первому
+    private static class Journal {
+        private final Journal parent;
+        private final List<Runnable> undo = new ArrayList<>();
+        private boolean closed;
+
+        private Journal(Journal parent) {
+            this.parent = parent;
+        }
+    }
+
+    public SessionHistoryManager(int sessionCapacity, int totalBudget, Duration idleTimeout) {
+        this(sessionCapacity, totalBudget, idleTimeout, Clock.systemUTC());
+    }
+
+    public SessionHistoryManager(int sessionCapacity, int totalBudget, Duration idleTimeout, Clock clock) {
+        if (sessionCapacity <= 0 || totalBudget < sessionCapacity) {
+            throw new IllegalArgumentException("Бюджет истории должен вмещать хотя бы одну полную сессию");
+        }
+        if (idleTimeout.isNegative() || idleTimeout.isZero()) {
+            throw new IllegalArgumentException("Время простоя сессии должно быть положительным");
+        }
+
+        this.sessionCapacity = sessionCapacity;
+        this.totalBudget = totalBudget;
+        this.idleTimeout = idleTimeout;
+        this.clock = clock;
+    }
+
+    // просмотры внутри action записываются в историю пользователя user
+    public <T> T withSession(String user, Supplier<T> action) {
+        String previous = currentUser.get();
+        currentUser.set(user);
+        try {
+            return action.get();
+        } finally {
+            if (previous == null) {
+                currentUser.remove();
+            } else {
+                currentUser.set(previous);
+            }
+        }
+    }
+
+    // сессия и пакет запоминаются сейчас, а действие может выполниться позже в любом потоке
+    @Override
+    public Executor callerContext() {
+        String user = currentUser();
+        Journal journal = currentJournal.get();
+
+        return action -> withSession(user, () -> {
+            Journal previous = currentJournal.get();
+            currentJournal.set(journal);
+            try {
+                action.run();
+            } finally {
+                currentJournal.set(previous);
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public synchronized void add(Task task) {
+        Session session = session(currentUser(), true);
+        LinkedTaskList history = session.history;
+        Journal journal = openJournal();
+        int before = history.size();
+
+        // просмотр сверх ёмкости вытесняет самый давний, и откат возвращает его вместе с прежним просмотром задачи
+        SavedView previous = journal == null ? null : saved(history.getNode(task.getId()));
+        SavedView evicted = journal == null || previous != null || before < history.getCapacity()
+                ? null : saved(history.head);
+
+        history.linkLast(task);
+        totalSize += history.size() - before;
+
+        if (journal != null) {
+            long stamp = history.getNode(task.getId()).getStamp();
+
+            journal.undo.add(() -> undo(session, list -> {
+                Node view = list.getNode(task.getId());
+                if (view != null && view.getStamp() == stamp) {
+                    list.removeNode(view);
+                }
+                restore(list, previous);
+                restore(list, evicted);
+            }));
+        }
+        evictOverBudget(session);
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        return getHistory(currentUser());
+    }
+
+    public synchronized List<Task> getHistory(String user) {
+        Session session = session(user, false);
+
+        return session == null ? List.of() : session.history.getTasks();
+    }
+
+    @Override
+    public List<Task> getHistory(int limit) {
+        return getHistory(currentUser(), limit);
+    }
+
+    public synchronized List<Task> getHistory(String user, int limit) {
+        Session session = session(user, false);
+
+        return session == null ? List.of() : session.history.getTasks(limit);
+    }
+
+    @Override
+    public synchronized List<Task> getHistoryAfter(int afterId, int limit) {
+        Session session = session(currentUser(), false);
+
+        return session == null ? List.of() : session.history.getTasksBefore(afterId, limit);
+    }
+
+    @Override
+    public synchronized void remove(int id) {
+        Journal journal = openJournal();
+
+        for (Session session : sessions.values()) {
+            Node view = session.history.getNode(id);
+            if (view == null) {
+                continue;
+            }
+
+            if (journal != null) {
+                SavedView removed = saved(view);
+                journal.undo.add(() -> undo(session, list -> restore(list, removed)));
+            }
+            session.history.removeNode(view);
+            totalSize--;
+        }
+    }
+
+    /*
+    Точка отката открывает журнал пакета в текущем потоке. При вложенной точке её журнал после завершения
+    передаётся внешнему, чтобы откат внешнего пакета вернул и изменения вложенного.
+    */
+    @Override
+    public synchronized Checkpoint checkpoint() {
+        Journal journal = new Journal(currentJournal.get());
+        currentJournal.set(journal);
+
+        return new Checkpoint() {
+            @Override
+            public void rollback() {
+                synchronized (SessionHistoryManager.this) {
+                    journal.undo.reversed().forEach(Runnable::run);
+                    journal.undo.clear();
+                }
+            }
+
+            @Override
+            public void release() {
+                synchronized (SessionHistoryManager.this) {
+                    journal.closed = true;
+                    if (journal.parent != null) {
+                        journal.parent.undo.addAll(journal.undo);
+                    }
+                    journal.undo.clear();
+                }
+
+                if (journal.parent == null) {
+                    currentJournal.remove();
+                } else {
+                    currentJournal.set(journal.parent);
+                }
+            }
+        };
+    }
+
+    public synchronized void closeSession(String user) {
+        Session session = sessions.remove(user);
+
+        if (session != null) {
+            discard(session);
+        }
+    }
+
+    public synchronized int getSessionCount() {
+        evictIdle();
+        return sessions.size();
+    }
+
+    public synchronized int getTotalSize() {
+        return totalSize;
+    }
+
+    private String currentUser() {
+        String user = currentUser.get();
+        return user == null ? ANONYMOUS : user;
+    }
+
+    private Session session(String user, boolean create) {
+        evictIdle();
+        Session session = sessions.get(user);
+
+        if (session == null && create) {
+            session = new Session(sessionCapacity);
+            sessions.put(user, session);
+        }
+        if (session != null) {
+            session.lastAccess = clock.millis();
+        }
+
+        return session;
+    }
+
+    // журнал пакета, к которому относится текущий поток; после завершения вложенного пакета — журнал внешнего
+    private Journal openJournal() {
+        Journal journal = currentJournal.get();
+
+        while (journal != null && journal.closed) {
+            journal = journal.parent;
+        }
+
+        return journal;
+    }
+
+    private static SavedView saved(Node view) {
+        return view == null ? null : new SavedView(view.getTask(), view.getStamp());
+    }
+
+    private static void restore(LinkedTaskList history, SavedView view) {
+        if (view != null) {
+            history.restore(view.task(), view.stamp());
+        }
+    }
+
+    // удалённая за время пакета сессия не воскрешается
+    private void undo(Session session, Consumer<LinkedTaskList> change) {
+        if (session.discarded) {
+            return;
+        }
+
+        int before = session.history.size();
+        change.accept(session.history);
+        totalSize += session.history.size() - before;
+    }
+
+    private void discard(Session session) {
+        session.discarded = true;
+        totalSize -= session.history.size();
+    }
+
+    private void evictIdle() {
+        long idleBefore = clock.millis() - idleTimeout.toMillis();
+        Iterator<Session> iterator = sessions.values().iterator();
+
+        while (iterator.hasNext()) {
+            Session session = iterator.next();
+            if (session.lastAccess > idleBefore) {
+                return;
+            }
+            discard(session);
+            iterator.remove();
+        }
+    }
+
+    // текущая сессия последняя в порядке обращений и не больше бюджета, поэтому до неё очередь не доходит
+    private void evictOverBudget(Session current) {
+        Iterator<Session> iterator = sessions.values().iterator();
+
+        while (totalSize > totalBudget && iterator.hasNext()) {
+            Session session = iterator.next();
+            if (session == current) {
+                return;
+            }
+            discard(session);
+            iterator.remove();
+        }
+    }
+}
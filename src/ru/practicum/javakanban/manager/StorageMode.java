@@ -0,0 +1,6 @@
+package ru.practicum.javakanban.manager;
+
+public enum StorageMode {
+    SNAPSHOT,
+    JOURNAL
+}
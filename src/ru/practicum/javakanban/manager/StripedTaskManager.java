@@ -0,0 +1,336 @@
+package ru.practicum.javakanban.manager;
+
+import ru.practicum.javakanban.exeptions.ManagerPrioritizeException;
+import ru.practicum.javakanban.model.Epic;
+import ru.practicum.javakanban.model.Subtask;
+import ru.practicum.javakanban.model.Task;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/*
+Менеджер с блокировками, разбитыми по эпикам. Эпик вместе с подзадачами и отдельная задача защищаются
+блокировкой своей полосы (по id эпика или задачи), поэтому изменения разных эпиков идут параллельно. Общий
+для всех список приоритизации защищён своей короткой блокировкой: проверка пересечений и вставка выполняются
+под ней одним действием, а при обновлении под ней же, не отпуская, убирается и прежняя версия задачи — иначе
+параллельное создание сравнилось бы с уже устаревшей соседкой. Карты потокобезопасны, id выдаются атомарно. Изменения одной задачи или эпика
+берут общую блокировку на чтение, а операции над всеми задачами сразу (deleteAll*, deleteWhere, пакеты) —
+на запись, поэтому выполняются, только когда других изменений нет. Чтения тоже берут общую блокировку на чтение,
+чтобы не увидеть незавершённый пакет или массовое удаление, а карты отдаются копиями, снятыми под ней.
+Порядок взятия: общая блокировка, полоса, расписание.
+*/
+public class StripedTaskManager extends InMemoryTaskManager {
+    public static final int DEFAULT_STRIPES = 64;
+
+    private final ReentrantReadWriteLock structureLock = new ReentrantReadWriteLock();
+    private final ReentrantLock[] stripes;
+    private final ReentrantLock scheduleLock = new ReentrantLock();
+
+    @FunctionalInterface
+    private interface Mutation {
+        void run() throws ManagerPrioritizeException;
+    }
+
+    public StripedTaskManager(HistoryManager historyManager) {
+        this(historyManager, DEFAULT_STRIPES);
+    }
+
+    public StripedTaskManager(HistoryManager historyManager, int stripeCount) {
+        super(new ConcurrentHistoryManager(historyManager), new ConcurrentHashMap<>(), new ConcurrentHashMap<>(),
+                new ConcurrentHashMap<>());
+
+        if (stripeCount <= 0) {
+            throw new IllegalArgumentException("Число полос блокировки должно быть положительным");
+        }
+
+        stripes = new ReentrantLock[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    // новые задача и эпик никому не видны до вставки, полоса им не нужна
+    @Override
+    public void createTask(Task task) throws ManagerPrioritizeException {
+        structureLock.readLock().lock();
+        try {
+            super.createTask(task);
+        } finally {
+            structureLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void createEpic(Epic epic) {
+        structureLock.readLock().lock();
+        try {
+            super.createEpic(epic);
+        } finally {
+            structureLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void updateTask(Task task, Integer id) throws ManagerPrioritizeException {
+        withStripe(id, () -> withScheduleLocked(() -> super.updateTask(task, id)));
+    }
+
+    @Override
+    public void deleteTask(int id) {
+        withStripeUnchecked(id, () -> super.deleteTask(id));
+    }
+
+    @Override
+    public void updateEpic(Epic epic, Integer id) {
+        withStripeUnchecked(id, () -> super.updateEpic(epic, id));
+    }
+
+    @Override
+    public void deleteEpic(int id) {
+        withStripeUnchecked(id, () -> super.deleteEpic(id));
+    }
+
+    @Override
+    public void createSubtask(Subtask subtask, int epicId) throws ManagerPrioritizeException {
+        withStripe(epicId, () -> super.createSubtask(subtask, epicId));
+    }
+
+    // подзадача не переходит между эпиками, поэтому полосу можно найти до блокировки
+    @Override
+    public void updateSubtask(Subtask subtask, Integer id) throws ManagerPrioritizeException {
+        Subtask current = super.getSubtasks().get(id);
+        int epicId = current == null ? id : current.getEpicId();
+
+        withStripe(epicId, () -> withScheduleLocked(() -> super.updateSubtask(subtask, id)));
+    }
+
+    @Override
+    public void deleteSubtask(int id) {
+        Subtask current = super.getSubtasks().get(id);
+
+        if (current != null) {
+            withStripeUnchecked(current.getEpicId(), () -> super.deleteSubtask(id));
+        }
+    }
+
+    @Override
+    public List<Subtask> getEpicSubtasks(int id) {
+        // эпик отдаёт живое представление, поэтому наружу уходит копия, снятая под блокировкой полосы
+        return withStripeUnchecked(id, () -> {
+            List<Subtask> epicSubtasks = super.getEpicSubtasks(id);
+            return epicSubtasks == null ? null : List.copyOf(epicSubtasks);
+        });
+    }
+
+    @Override
+    public List<Task> getAllTasks() {
+        return withStructure(super::getAllTasks);
+    }
+
+    @Override
+    public List<Epic> getAllEpics() {
+        return withStructure(super::getAllEpics);
+    }
+
+    @Override
+    public List<Subtask> getAllSubtasks() {
+        return withStructure(super::getAllSubtasks);
+    }
+
+    @Override
+    public Task getTask(int id) {
+        return withStructure(() -> super.getTask(id));
+    }
+
+    @Override
+    public Epic getEpic(int id) {
+        return withStructure(() -> super.getEpic(id));
+    }
+
+    @Override
+    public Subtask getSubtask(int id) {
+        return withStructure(() -> super.getSubtask(id));
+    }
+
+    @Override
+    public void deleteAllTasks() {
+        withAllUnchecked(super::deleteAllTasks);
+    }
+
+    @Override
+    public void deleteAllEpics() {
+        withAllUnchecked(super::deleteAllEpics);
+    }
+
+    @Override
+    public void deleteAllSubtasks() {
+        withAllUnchecked(super::deleteAllSubtasks);
+    }
+
+    @Override
+    public void deleteWhere(Predicate<Task> filter) {
+        withAllUnchecked(() -> super.deleteWhere(filter));
+    }
+
+    @Override
+    public void runInTransaction(TaskBatch batch) throws ManagerPrioritizeException {
+        withAll(() -> super.runInTransaction(batch));
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasks() {
+        return withSchedule(super::getPrioritizedTasks);
+    }
+
+    @Override
+    public SortedSet<Task> getTasksStartingBetween(LocalDateTime from, LocalDateTime to) {
+        return withSchedule(() -> Collections.unmodifiableSortedSet(new TreeSet<>(
+                super.getTasksStartingBetween(from, to))));
+    }
+
+    @Override
+    public SortedSet<Task> getTasksOverlapping(LocalDateTime from, LocalDateTime to) {
+        return withSchedule(() -> Collections.unmodifiableSortedSet(new TreeSet<>(
+                super.getTasksOverlapping(from, to))));
+    }
+
+    @Override
+    public Optional<LocalDateTime> findFreeSlot(Duration duration, LocalDateTime from) {
+        return withSchedule(() -> super.findFreeSlot(duration, from));
+    }
+
+    @Override
+    public List<LocalDateTime> findFreeSlots(Duration duration, LocalDateTime from, LocalDateTime to, int limit) {
+        return withSchedule(() -> super.findFreeSlots(duration, from, to, limit));
+    }
+
+    @Override
+    public Map<Integer, Task> getTasks() {
+        return withStructure(() -> Collections.unmodifiableMap(new HashMap<>(super.getTasks())));
+    }
+
+    @Override
+    public Map<Integer, Epic> getEpics() {
+        return withStructure(() -> Collections.unmodifiableMap(new HashMap<>(super.getEpics())));
+    }
+
+    @Override
+    public Map<Integer, Subtask> getSubtasks() {
+        return withStructure(() -> Collections.unmodifiableMap(new HashMap<>(super.getSubtasks())));
+    }
+
+    @Override
+    protected void addPrioritizedTasks(Task task) throws ManagerPrioritizeException {
+        scheduleLock.lock();
+        try {
+            super.addPrioritizedTasks(task);
+        } finally {
+            scheduleLock.unlock();
+        }
+    }
+
+    @Override
+    protected void removePrioritizedTask(Task task) {
+        withSchedule(() -> {
+            super.removePrioritizedTask(task);
+            return null;
+        });
+    }
+
+    @Override
+    protected NavigableSet<Task> copyPrioritizedTasks() {
+        return withSchedule(super::copyPrioritizedTasks);
+    }
+
+    private ReentrantLock stripe(int id) {
+        return stripes[Math.floorMod(Integer.hashCode(id), stripes.length)];
+    }
+
+    private void withStripe(int id, Mutation mutation) throws ManagerPrioritizeException {
+        ReentrantLock lock = stripe(id);
+        structureLock.readLock().lock();
+        lock.lock();
+        try {
+            mutation.run();
+        } finally {
+            lock.unlock();
+            structureLock.readLock().unlock();
+        }
+    }
+
+    private void withStripeUnchecked(int id, Runnable mutation) {
+        withStripeUnchecked(id, () -> {
+            mutation.run();
+            return null;
+        });
+    }
+
+    private <T> T withStripeUnchecked(int id, Supplier<T> action) {
+        ReentrantLock lock = stripe(id);
+        structureLock.readLock().lock();
+        lock.lock();
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+            structureLock.readLock().unlock();
+        }
+    }
+
+    private void withAll(Mutation mutation) throws ManagerPrioritizeException {
+        structureLock.writeLock().lock();
+        scheduleLock.lock();
+        try {
+            mutation.run();
+        } finally {
+            scheduleLock.unlock();
+            structureLock.writeLock().unlock();
+        }
+    }
+
+    private void withAllUnchecked(Runnable mutation) {
+        structureLock.writeLock().lock();
+        scheduleLock.lock();
+        try {
+            mutation.run();
+        } finally {
+            scheduleLock.unlock();
+            structureLock.writeLock().unlock();
+        }
+    }
+
+    // поток пакета уже держит блокировку на запись и может взять её и на чтение
+    private <T> T withStructure(Supplier<T> action) {
+        structureLock.readLock().lock();
+        try {
+            return action.get();
+        } finally {
+            structureLock.readLock().unlock();
+        }
+    }
+
+    // вложенные вызовы берут повторно только уже взятые этим потоком блокировки, порядок взятия не нарушается
+    private void withScheduleLocked(Mutation mutation) throws ManagerPrioritizeException {
+        scheduleLock.lock();
+        try {
+            mutation.run();
+        } finally {
+            scheduleLock.unlock();
+        }
+    }
+
+    private <T> T withSchedule(Supplier<T> action) {
+        scheduleLock.lock();
+        try {
+            return action.get();
+        } finally {
+            scheduleLock.unlock();
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package ru.practicum.javakanban.manager;
+
+import ru.practicum.javakanban.exeptions.ManagerPrioritizeException;
+
+@FunctionalInterface
+public interface TaskBatch {
+    void run(TaskManager taskManager) throws ManagerPrioritizeException;
+}
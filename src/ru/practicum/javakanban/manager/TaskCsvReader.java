@@ -0,0 +1,311 @@
+package ru.practicum.javakanban.manager;
+
+import ru.practicum.javakanban.model.*;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/*
+Потоковый разбор csv: записи читаются в переиспользуемый буфер, колонки берутся по фиксированным индексам,
+а числа, статусы, типы и даты разбираются прямо из символов без промежуточных строк. Поля в кавычках
+поддерживаются: внутри них допустимы запятые, переводы строк и удвоенные кавычки.
+*/
+public class TaskCsvReader implements Closeable {
+    public static final int ID = 0;
+    public static final int TYPE = 1;
+    public static final int NAME = 2;
+    public static final int STATUS = 3;
+    public static final int DESCRIPTION = 4;
+    public static final int DURATION = 5;
+    public static final int START_TIME = 6;
+    public static final int EPIC_ID = 7;
+
+    private static final Status[] STATUSES = Status.values();
+    private static final TaskType[] TYPES = TaskType.values();
+
+    private final Reader reader;
+    private final char[] buffer = new char[8192];
+    private int position;
+    private int limit;
+    private char[] record = new char[256];
+    private int length;
+    private int[] starts = new int[16];
+    private int[] ends = new int[16];
+    private int fieldCount;
+    private boolean terminated;
+
+    public TaskCsvReader(Reader reader) {
+        this.reader = reader;
+    }
+
+    public boolean next() throws IOException {
+        do {
+            if (!readRecord()) {
+                return false;
+            }
+        } while (fieldCount == 1 && starts[0] == ends[0] && terminated);
+
+        return true;
+    }
+
+    public Task readTask(int offset) {
+        TaskType type = getType(offset + TYPE);
+        int id = getInt(offset + ID);
+        String name = getString(offset + NAME);
+        Status status = getStatus(offset + STATUS);
+        String description = getString(offset + DESCRIPTION);
+
+        return switch (type) {
+            case TASK -> new Task(name, description, id, status, getDuration(offset + DURATION),
+                    getDateTime(offset + START_TIME));
+            case SUBTASK -> new Subtask(name, description, id, status, getInt(offset + EPIC_ID),
+                    getDuration(offset + DURATION), getDateTime(offset + START_TIME));
+            case EPIC -> new Epic(name, description, id, status);
+        };
+    }
+
+    public int getFieldCount() {
+        return fieldCount;
+    }
+
+    // false, если последняя прочитанная запись оборвалась концом файла без перевода строки
+    public boolean isTerminated() {
+        return terminated;
+    }
+
+    public boolean isEmpty(int field) {
+        return field >= fieldCount || starts[field] == ends[field];
+    }
+
+    public boolean fieldEquals(int field, String value) {
+        checkField(field);
+        int start = starts[field];
+
+        if (ends[field] - start != value.length()) {
+            return false;
+        }
+
+        for (int i = 0; i < value.length(); i++) {
+            if (record[start + i] != value.charAt(i)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    public String getString(int field) {
+        checkField(field);
+        return new String(record, starts[field], ends[field] - starts[field]);
+    }
+
+    public int getInt(int field) {
+        long value = getLong(field);
+
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw new NumberFormatException("Число вне диапазона int в колонке " + field);
+        }
+
+        return (int) value;
+    }
+
+    public long getLong(int field) {
+        checkField(field);
+        int i = starts[field];
+        int end = ends[field];
+        boolean negative = i < end && record[i] == '-';
+
+        if (negative || (i < end && record[i] == '+')) {
+            i++;
+        }
+
+        if (i == end || end - i > 18) {
+            throw new NumberFormatException("Некорректное число в колонке " + field);
+        }
+
+        long value = 0;
+        for (; i < end; i++) {
+            value = value * 10 + digit(i);
+        }
+
+        return negative ? -value : value;
+    }
+
+    public Duration getDuration(int field) {
+        return Duration.ofMinutes(getLong(field));
+    }
+
+    public Status getStatus(int field) {
+        for (Status status : STATUSES) {
+            if (fieldEquals(field, status.name())) {
+                return status;
+            }
+        }
+
+        throw new IllegalArgumentException("Такого статуса не существует.");
+    }
+
+    public TaskType getType(int field) {
+        for (TaskType type : TYPES) {
+            if (fieldEquals(field, type.name())) {
+                return type;
+            }
+        }
+
+        throw new IllegalArgumentException("Невалидная строка.");
+    }
+
+    // быстрый путь для формата LocalDateTime.toString(), всё остальное разбирает стандартный парсер
+    public LocalDateTime getDateTime(int field) {
+        checkField(field);
+        int s = starts[field];
+        int length = ends[field] - s;
+
+        if (length >= 16 && record[s + 4] == '-' && record[s + 7] == '-' && record[s + 10] == 'T'
+                && record[s + 13] == ':') {
+            int year = number(s, 4);
+            int month = number(s + 5, 2);
+            int day = number(s + 8, 2);
+            int hour = number(s + 11, 2);
+            int minute = number(s + 14, 2);
+
+            if (length == 16) {
+                return LocalDateTime.of(year, month, day, hour, minute);
+            }
+
+            if (length >= 19 && record[s + 16] == ':') {
+                int second = number(s + 17, 2);
+
+                if (length == 19) {
+                    return LocalDateTime.of(year, month, day, hour, minute, second);
+                }
+
+                if (record[s + 19] == '.' && length > 20 && length <= 29) {
+                    int nano = number(s + 20, length - 20);
+                    for (int i = length - 20; i < 9; i++) {
+                        nano *= 10;
+                    }
+
+                    return LocalDateTime.of(year, month, day, hour, minute, second, nano);
+                }
+            }
+        }
+
+        return LocalDateTime.parse(getString(field));
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private boolean readRecord() throws IOException {
+        fieldCount = 0;
+        length = 0;
+        int c = read();
+
+        if (c == -1) {
+            return false;
+        }
+
+        while (true) {
+            int start = length;
+
+            if (c == '"') {
+                while ((c = read()) != -1) {
+                    if (c == '"') {
+                        c = read();
+                        if (c != '"') {
+                            break;
+                        }
+                    }
+                    append((char) c);
+                }
+            }
+
+            while (c != -1 && c != ',' && c != '\n') {
+                if (c != '\r') {
+                    append((char) c);
+                }
+                c = read();
+            }
+
+            addField(start, length);
+
+            if (c != ',') {
+                terminated = c == '\n';
+                return true;
+            }
+
+            c = read();
+        }
+    }
+
+    private int read() throws IOException {
+        if (position == limit) {
+            limit = reader.read(buffer, 0, buffer.length);
+            position = 0;
+
+            if (limit <= 0) {
+                limit = 0;
+                return -1;
+            }
+        }
+
+        return buffer[position++];
+    }
+
+    private void append(char c) {
+        if (length == record.length) {
+            char[] grown = new char[record.length * 2];
+            System.arraycopy(record, 0, grown, 0, length);
+            record = grown;
+        }
+
+        record[length++] = c;
+    }
+
+    private void addField(int start, int end) {
+        if (fieldCount == starts.length) {
+            int[] grownStarts = new int[starts.length * 2];
+            int[] grownEnds = new int[ends.length * 2];
+            System.arraycopy(starts, 0, grownStarts, 0, fieldCount);
+            System.arraycopy(ends, 0, grownEnds, 0, fieldCount);
+            starts = grownStarts;
+            ends = grownEnds;
+        }
+
+        starts[fieldCount] = start;
+        ends[fieldCount] = end;
+        fieldCount++;
+    }
+
+    private void checkField(int field) {
+        if (field >= fieldCount) {
+            throw new IllegalArgumentException("В записи нет колонки " + field);
+        }
+    }
+
+    private int number(int start, int digits) {
+        int value = 0;
+
+        for (int i = start; i < start + digits; i++) {
+            value = value * 10 + digit(i);
+        }
+
+        return value;
+    }
+
+    private int digit(int index) {
+        char c = record[index];
+
+        if (c < '0' || c > '9') {
+            throw new NumberFormatException("Ожидалась цифра, а не '" + c + "'");
+        }
+
+        return c - '0';
+    }
+}
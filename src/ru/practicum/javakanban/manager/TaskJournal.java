@@ -0,0 +1,250 @@
+package ru.practicum.javakanban.manager;
+
+import ru.practicum.javakanban.exeptions.ManagerLoadException;
+import ru.practicum.javakanban.exeptions.ManagerSaveException;
+import ru.practicum.javakanban.model.Task;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+public class TaskJournal implements AutoCloseable {
+    private static final String UPSERT = "UPSERT";
+    private static final String DELETE = "DELETE";
+
+    private final File journalFile;
+    private final DurabilityPolicy durabilityPolicy;
+    private GroupCommitWriter writer;
+    private int recordCount;
+    private long size;
+    private long nextSegment;
+
+    public TaskJournal(File journalFile) {
+        this(journalFile, null);
+    }
+
+    // без политики записи дописываются синхронно в вызывающем потоке, как раньше
+    public TaskJournal(File journalFile, DurabilityPolicy durabilityPolicy) {
+        this.journalFile = journalFile;
+        this.durabilityPolicy = durabilityPolicy;
+        List<File> segments = listSegments(journalFile);
+        this.nextSegment = segments.isEmpty() ? 1 : segmentNumber(segments.getLast()) + 1;
+    }
+
+    public CompletableFuture<Void> append(List<? extends Task> updated, List<Integer> deleted) {
+        StringBuilder records = new StringBuilder();
+
+        for (Integer id : deleted) {
+            records.append(DELETE).append(',').append(id).append('\n');
+        }
+
+        for (Task task : updated) {
+            records.append(UPSERT).append(',').append(task.convertToString()).append('\n');
+        }
+
+        byte[] bytes = records.toString().getBytes(StandardCharsets.UTF_8);
+        int count = updated.size() + deleted.size();
+        recordCount += count;
+        size += bytes.length;
+
+        if (durabilityPolicy != null) {
+            return getWriter().write(bytes, count);
+        }
+
+        try (OutputStream out = new FileOutputStream(journalFile, true)) {
+            out.write(bytes);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Не удалось дописать изменения в журнал " + journalFile.getName());
+        }
+
+        return CompletableFuture.completedFuture(null);
+    }
+
+    // завершается, когда все принятые до вызова записи сброшены на диск
+    public CompletableFuture<Void> sync() {
+        return writer == null ? CompletableFuture.completedFuture(null) : writer.sync();
+    }
+
+    public void reset() {
+        release();
+
+        try (Writer out = new FileWriter(journalFile, StandardCharsets.UTF_8, false)) {
+            out.flush();
+        } catch (IOException e) {
+            throw new ManagerSaveException("Не удалось очистить журнал " + journalFile.getName());
+        }
+
+        recordCount = 0;
+        size = 0;
+    }
+
+    /*
+    Закрывает текущий журнал в отдельный сегмент, новые записи пойдут в пустой файл. При групповой записи сегмент
+    закрывает её поток после всех уже принятых записей, и будущее завершается, когда они на диске, а файл
+    переименован; вызывающий поток при этом не ждёт. Без политики надёжности и после сбоя записи файл
+    переименовывается сразу.
+    */
+    public CompletableFuture<File> rotate() {
+        File segment = new File(journalFile.getPath() + "." + nextSegment++);
+        recordCount = 0;
+        size = 0;
+
+        if (writer != null && writer.getFailure() == null) {
+            return writer.rotate(segment).thenApply(ignored -> segment);
+        }
+
+        close();
+
+        if (journalFile.exists() && !journalFile.renameTo(segment)) {
+            throw new ManagerSaveException("Не удалось закрыть сегмент журнала " + journalFile.getName());
+        }
+
+        return CompletableFuture.completedFuture(segment);
+    }
+
+    public List<File> getSegments() {
+        return listSegments(journalFile);
+    }
+
+    private static List<File> listSegments(File journalFile) {
+        File directory = journalFile.getAbsoluteFile().getParentFile();
+        String prefix = journalFile.getName() + ".";
+        File[] files = directory.listFiles((dir, name) -> name.startsWith(prefix)
+                && name.length() > prefix.length()
+                && name.substring(prefix.length()).chars().allMatch(Character::isDigit));
+
+        List<File> segments = new ArrayList<>();
+        if (files != null) {
+            segments.addAll(List.of(files));
+        }
+        segments.sort(Comparator.comparingLong(TaskJournal::segmentNumber));
+
+        return segments;
+    }
+
+    // сегменты, закрытые не позже last, то есть покрытые снимком, снятым при его закрытии
+    public List<File> getSegmentsThrough(File last) {
+        long lastNumber = segmentNumber(last);
+
+        return getSegments().stream().filter(segment -> segmentNumber(segment) <= lastNumber).toList();
+    }
+
+    public void deleteSegments(List<File> segments) {
+        for (File segment : segments) {
+            if (segment.exists() && !segment.delete()) {
+                throw new ManagerSaveException("Не удалось удалить сегмент журнала " + segment.getName());
+            }
+        }
+    }
+
+    // возвращает false, если последняя запись оказалась недописанной и была пропущена
+    public boolean replay(Map<Integer, Task> state) {
+        for (File segment : getSegments()) {
+            replayFile(segment, state);
+        }
+
+        recordCount = 0;
+        size = journalFile.length();
+        return replayFile(journalFile, state);
+    }
+
+    public int getRecordCount() {
+        return recordCount;
+    }
+
+    // учитывает и записи, ещё не дошедшие до файла
+    public long getSize() {
+        return size;
+    }
+
+    public File getJournalFile() {
+        return journalFile;
+    }
+
+    public DurabilityPolicy getDurabilityPolicy() {
+        return durabilityPolicy;
+    }
+
+    @Override
+    public void close() {
+        if (writer != null) {
+            writer.close();
+            writer = null;
+        }
+    }
+
+    private GroupCommitWriter getWriter() {
+        if (writer == null) {
+            writer = new GroupCommitWriter(journalFile, durabilityPolicy);
+        }
+
+        return writer;
+    }
+
+    // сбой фоновой записи сообщается следующему изменению, иначе оно тоже молча пропало бы
+    public void checkWritable() {
+        if (writer != null && writer.getFailure() != null) {
+            throw writer.getFailure();
+        }
+    }
+
+    // после сбоя журнал начинается заново с новым писателем, поэтому сломанный просто закрывается
+    private void release() {
+        if (writer == null) {
+            return;
+        }
+
+        if (writer.getFailure() != null) {
+            close();
+            return;
+        }
+
+        writer.release();
+    }
+
+    private boolean replayFile(File file, Map<Integer, Task> state) {
+        if (!file.exists()) {
+            return true;
+        }
+
+        try (TaskCsvReader reader = new TaskCsvReader(new FileReader(file, StandardCharsets.UTF_8))) {
+            while (reader.next()) {
+                // запись без перевода строки в конце файла не была дописана до конца при аварийном завершении
+                if (!reader.isTerminated()) {
+                    return false;
+                }
+
+                try {
+                    apply(reader, state);
+                } catch (RuntimeException e) {
+                    throw new ManagerLoadException("Повреждённая запись в журнале " + file.getName());
+                }
+                recordCount++;
+            }
+        } catch (IOException e) {
+            throw new ManagerLoadException("Не удалось прочитать журнал " + file.getName());
+        }
+
+        return true;
+    }
+
+    private static void apply(TaskCsvReader reader, Map<Integer, Task> state) {
+        if (reader.fieldEquals(0, UPSERT)) {
+            Task task = reader.readTask(1);
+            state.put(task.getId(), task);
+        } else if (reader.fieldEquals(0, DELETE)) {
+            state.remove(reader.getInt(1));
+        } else {
+            throw new IllegalArgumentException("Неизвестная операция журнала.");
+        }
+    }
+
+    private static long segmentNumber(File segment) {
+        String name = segment.getName();
+        return Long.parseLong(name.substring(name.lastIndexOf('.') + 1));
+    }
+}
@@ -5,8 +5,13 @@ import ru.practicum.javakanban.model.Epic;
 import ru.practicum.javakanban.model.Subtask;
 import ru.practicum.javakanban.model.Task;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.SortedSet;
+import java.util.function.Predicate;
 
 public interface TaskManager {
 
@@ -36,6 +41,9 @@ public interface TaskManager {
 
     void deleteAllSubtasks();
 
+    // удаляет задачи, эпики и подзадачи, подходящие под фильтр; вместе с эпиком удаляются его подзадачи
+    void deleteWhere(Predicate<Task> filter);
+
     Task getTask(int id);
 
     Epic getEpic(int id);
@@ -50,8 +58,27 @@ public interface TaskManager {
 
     List<Task> getHistory();
 
+    // страницы истории для виджетов вроде «последние 10 просмотренных»: копируется только сама страница
+    List<Task> getHistory(int limit);
+
+    List<Task> getHistoryAfter(int afterId, int limit);
+
+    // все операции пакета применяются вместе: при любой ошибке состояние менеджера возвращается к исходному
+    void runInTransaction(TaskBatch batch) throws ManagerPrioritizeException;
+
     List<Task> getPrioritizedTasks();
 
+    // живые представления приоритизации только для чтения: обход стоит пропорционально числу задач в окне
+    SortedSet<Task> getTasksStartingBetween(LocalDateTime from, LocalDateTime to);
+
+    SortedSet<Task> getTasksOverlapping(LocalDateTime from, LocalDateTime to);
+
+    // самое раннее время не раньше from, с которого задача длительностью duration ни с чем не пересечётся
+    Optional<LocalDateTime> findFreeSlot(Duration duration, LocalDateTime from);
+
+    // до limit непересекающихся свободных промежутков длительностью duration внутри [from, to)
+    List<LocalDateTime> findFreeSlots(Duration duration, LocalDateTime from, LocalDateTime to, int limit);
+
     Map<Integer, Task> getTasks();
 
     Map<Integer, Epic> getEpics();
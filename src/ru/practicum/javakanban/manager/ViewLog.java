@@ -0,0 +1,272 @@
+package ru.practicum.javakanban.manager;
+
+import ru.practicum.javakanban.exeptions.ManagerLoadException;
+import ru.practicum.javakanban.exeptions.ManagerSaveException;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.IntPredicate;
+
+/*
+Журнал просмотров фиксированной раскладки:
+- заголовок (8 байт): сигнатура и версия;
+- записи по 12 байт: id задачи и время просмотра в миллисекундах от эпохи; удаление задачи из истории
+  записывается как ~id (id задач положительные).
+Записи только дописываются в конец, а время не убывает, поэтому загруженные в память массивы id и времени уже
+отсортированы по времени и служат индексом: границы окна находятся двоичным поиском без обхода всего журнала.
+Неполная последняя запись (обрыв во время записи) при открытии отбрасывается. Запись не сбрасывается на диск
+принудительно: при сбое теряются только последние просмотры. Сжатие (compact) переписывает журнал, оставляя
+только последний просмотр каждой задачи, поэтому размер журнала ограничен числом просмотренных задач.
+*/
+public class ViewLog implements AutoCloseable {
+    private static final int MAGIC = 0x4B42564C;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+    private static final int RECORD_SIZE = 12;
+
+    private final File file;
+    private FileChannel channel;
+    private final ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+    private int[] ids = new int[64];
+    private long[] times = new long[64];
+    private int count;
+
+    public ViewLog(File file) {
+        this.file = file;
+
+        try {
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            long size = channel.size();
+
+            if (size < HEADER_SIZE) {
+                channel.truncate(0);
+                channel.write(ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(VERSION).flip(), 0);
+            } else {
+                load(size);
+            }
+            channel.position(HEADER_SIZE + (long) count * RECORD_SIZE);
+        } catch (IOException e) {
+            throw new ManagerLoadException("Не удалось открыть журнал просмотров " + file.getName());
+        }
+    }
+
+    public void appendView(int id, long epochMillis) {
+        append(id, epochMillis);
+    }
+
+    public void appendRemoval(int id, long epochMillis) {
+        append(~id, epochMillis);
+    }
+
+    public int size() {
+        return count;
+    }
+
+    // отбрасывает записи после первых size, например сделанные откатившимся пакетом изменений
+    public void truncate(int size) {
+        if (size < 0 || size > count) {
+            throw new IllegalArgumentException("Журнал просмотров содержит только " + count + " записей");
+        }
+        if (size == count) {
+            return;
+        }
+
+        long length = HEADER_SIZE + (long) size * RECORD_SIZE;
+        try {
+            channel.truncate(length);
+            channel.position(length);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Не удалось обрезать журнал просмотров " + file.getName());
+        }
+        count = size;
+    }
+
+    /*
+    Оставляет для каждой задачи, которую пропускает keep, только последний просмотр; удаления и более ранние
+    просмотры отбрасываются. Оставшиеся записи сохраняют порядок и время, поэтому проигрывание сжатого журнала
+    даёт ту же историю, но окна времени видят только последние просмотры. Новый журнал пишется во временный
+    файл и заменяет старый целиком, так что при сбое остаётся один из двух полных журналов.
+    */
+    public void compact(IntPredicate keep) {
+        Set<Integer> seen = new HashSet<>();
+        int[] kept = new int[count];
+        int keptCount = 0;
+
+        for (int i = count - 1; i >= 0; i--) {
+            int id = getId(i);
+
+            if (seen.add(id) && !isRemoval(i) && keep.test(id)) {
+                kept[keptCount++] = i;
+            }
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + keptCount * RECORD_SIZE);
+        buffer.putInt(MAGIC).putInt(VERSION);
+        for (int i = keptCount - 1; i >= 0; i--) {
+            buffer.putInt(ids[kept[i]]).putLong(times[kept[i]]);
+        }
+        buffer.flip();
+
+        File temporary = new File(file.getPath() + ".tmp");
+        try (FileChannel compacted = FileChannel.open(temporary.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                compacted.write(buffer);
+            }
+            compacted.force(true);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Не удалось записать сжатый журнал просмотров " + temporary.getName());
+        }
+
+        // открытый файл на Windows нельзя заменить, поэтому канал закрывается на время замены
+        boolean replaced = false;
+        try {
+            channel.close();
+            try {
+                Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+            replaced = true;
+        } catch (IOException e) {
+            throw new ManagerSaveException("Не удалось заменить журнал просмотров " + file.getName());
+        } finally {
+            reopen();
+        }
+
+        if (replaced) {
+            for (int i = 0; i < keptCount; i++) {
+                ids[i] = ids[kept[keptCount - 1 - i]];
+                times[i] = times[kept[keptCount - 1 - i]];
+            }
+            count = keptCount;
+        }
+    }
+
+    public boolean isRemoval(int index) {
+        return ids[index] < 0;
+    }
+
+    public int getId(int index) {
+        return ids[index] < 0 ? ~ids[index] : ids[index];
+    }
+
+    public long getTime(int index) {
+        return times[index];
+    }
+
+    // индекс первой записи со временем не раньше epochMillis, или size(), если таких нет
+    public int indexOf(long epochMillis) {
+        int low = 0;
+        int high = count;
+
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+
+            if (times[middle] < epochMillis) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        return low;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new ManagerSaveException("Не удалось закрыть журнал просмотров " + file.getName());
+        }
+    }
+
+    private void reopen() {
+        try {
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+            channel.position(channel.size());
+        } catch (IOException e) {
+            throw new ManagerSaveException("Не удалось открыть журнал просмотров " + file.getName());
+        }
+    }
+
+    private void append(int value, long epochMillis) {
+        // время не убывает, даже если системные часы перевели назад, иначе двоичный поиск по окну сломается
+        long time = count == 0 ? epochMillis : Math.max(epochMillis, times[count - 1]);
+
+        record.clear();
+        record.putInt(value).putLong(time).flip();
+
+        try {
+            while (record.hasRemaining()) {
+                channel.write(record);
+            }
+        } catch (IOException e) {
+            throw new ManagerSaveException("Не удалось записать просмотр в " + file.getName());
+        }
+
+        add(value, time);
+    }
+
+    private void load(long size) throws IOException {
+        if (size > Integer.MAX_VALUE) {
+            throw new ManagerLoadException("Журнал просмотров " + file.getName() + " слишком велик");
+        }
+
+        // файл читается в кучу, а не отображается в память: отображённый файл на Windows нельзя обрезать
+        ByteBuffer buffer = ByteBuffer.allocate((int) size);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, buffer.position()) < 0) {
+                break;
+            }
+        }
+
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new ManagerLoadException("Файл " + file.getName() + " не является журналом просмотров");
+        }
+
+        int records = (int) ((size - HEADER_SIZE) / RECORD_SIZE);
+
+        ids = new int[Math.max(64, records)];
+        times = new long[ids.length];
+
+        for (int i = 0; i < records; i++) {
+            int at = HEADER_SIZE + i * RECORD_SIZE;
+            ids[i] = buffer.getInt(at);
+            times[i] = buffer.getLong(at + 4);
+        }
+        count = records;
+
+        long validSize = HEADER_SIZE + (long) records * RECORD_SIZE;
+        if (validSize < size) {
+            channel.truncate(validSize);
+        }
+    }
+
+    private void add(int value, long time) {
+        if (count == ids.length) {
+            ids = Arrays.copyOf(ids, count * 2);
+            times = Arrays.copyOf(times, count * 2);
+        }
+
+        ids[count] = value;
+        times[count] = time;
+        count++;
+    }
+}
@@ -2,13 +2,27 @@ package ru.practicum.javakanban.model;
 
 import java.time.Duration;
 import java.time.LocalDateTime;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
-import java.util.Optional;
-
+import java.util.*;
+
+/*
+Статус, длительность, начало и окончание эпика не пересчитываются обходом подзадач, а поддерживаются при каждом
+добавлении и удалении подзадачи: счётчики статусов, сумма длительностей и упорядоченные мультимножества начал и
+окончаний. Для каждой подзадачи запоминаются учтённые значения, поэтому удаление вычитает ровно то, что было
+добавлено, даже если подзадачу после этого изменили на месте; такие изменения подхватывает refreshSubtask.
+Подзадачи хранятся по id в порядке добавления и отдаются живым неизменяемым представлением без копирования:
+оно обходит подзадачи в порядке добавления и сразу видит изменения эпика. Кому нужен снимок, копирует его сам.
+*/
 public class Epic extends Task {
-    private List<Subtask> subtasks = new ArrayList<>();
+    private final Map<Integer, Subtask> subtasks = new LinkedHashMap<>();
+    private final List<Subtask> subtasksView = new SubtasksView();
+    private final Map<Integer, Accounted> accounted = new HashMap<>();
+    private final int[] statusCounts = new int[Status.values().length];
+    private final TreeMap<LocalDateTime, Integer> starts = new TreeMap<>();
+    private final TreeMap<LocalDateTime, Integer> ends = new TreeMap<>();
+    private Duration totalDuration = Duration.ZERO;
+
+    private record Accounted(Status status, Duration duration, LocalDateTime startTime, LocalDateTime endTime) {
+    }
 
     public Epic(String name, String description) {
         super(name, description);
@@ -26,11 +40,51 @@ public class Epic extends Task {
     }
 
     public List<Subtask> getSubtasks() {
-        return subtasks;
+        return subtasksView;
+    }
+
+    public boolean containsSubtask(int subtaskId) {
+        return subtasks.containsKey(subtaskId);
     }
 
     public void setSubtasks(List<Subtask> subtasks) {
-        this.subtasks = subtasks;
+        List<Subtask> newSubtasks = new ArrayList<>(subtasks);
+
+        clearSubtasks();
+        newSubtasks.forEach(this::addSubtask);
+    }
+
+    // подзадача с уже известным id заменяет прежнюю на её месте
+    public void addSubtask(Subtask subtask) {
+        discount(subtask.getId());
+        subtasks.put(subtask.getId(), subtask);
+        account(subtask);
+    }
+
+    public void removeSubtask(Subtask subtask) {
+        if (subtasks.remove(subtask.getId()) != null) {
+            discount(subtask.getId());
+        }
+    }
+
+    public void removeSubtasks(Collection<Subtask> removed) {
+        removed.forEach(this::removeSubtask);
+    }
+
+    // пересчитывает вклад подзадачи, изменённой на месте через сеттеры
+    public void refreshSubtask(Subtask subtask) {
+        if (subtasks.containsKey(subtask.getId())) {
+            addSubtask(subtask);
+        }
+    }
+
+    public void clearSubtasks() {
+        subtasks.clear();
+        accounted.clear();
+        Arrays.fill(statusCounts, 0);
+        starts.clear();
+        ends.clear();
+        totalDuration = Duration.ZERO;
     }
 
     public void updateTimes() {
@@ -53,73 +107,41 @@ public class Epic extends Task {
                 '}';
     }
 
+    // все подзадачи в одном статусе дают этот статус, иначе эпик в работе; эпик без подзадач считается выполненным
     public void updateStatus() {
         if (subtasks.isEmpty()) {
             setStatus(Status.DONE);
             return;
         }
 
-        List<Status> statuses = new ArrayList<>();
-
-        for (Subtask epicSubtask : subtasks) statuses.add(epicSubtask.getStatus());
-
-        Collections.sort(statuses);
-
-        if (statuses.getFirst() == statuses.getLast()) {
-            setStatus(statuses.getLast());
-        } else {
-            setStatus(Status.IN_PROGRESS);
+        for (Status subtaskStatus : Status.values()) {
+            if (statusCounts[subtaskStatus.ordinal()] == subtasks.size()) {
+                setStatus(subtaskStatus);
+                return;
+            }
         }
-    }
 
-    public void removeSubtask(Subtask subtask) {
-        subtasks.remove(subtask);
-    }
-
-    public void clearSubtasks() {
-        subtasks.clear();
+        setStatus(Status.IN_PROGRESS);
     }
 
     @Override
     public LocalDateTime getStartTime() {
-        Optional<LocalDateTime> startEpicTime = subtasks.stream()
-                .filter(subtask -> subtask.getStartTime() != null)
-                .map(subtask -> subtask.getStartTime())
-                .min(LocalDateTime::compareTo);
-
-        if (startEpicTime.isPresent()) {
-            return startEpicTime.get();
-        } else {
-            return null;
-        }
+        return starts.isEmpty() ? null : starts.firstKey();
     }
 
     @Override
     public Duration getDuration() {
-        return subtasks
-                .stream()
-                .filter(subtask -> subtask.getDuration() != null)
-                .map(subtask -> subtask.getDuration())
-                .reduce(Duration.ofSeconds(0), Duration::plus);
+        return totalDuration;
     }
 
     public LocalDateTime getEndTime() {
-
-        Optional<LocalDateTime> endEpicTime = subtasks.stream()
-                .filter(subtask -> subtask.getStartTime() != null && subtask.getDuration() != null)
-                .map(subtask -> subtask.getEndTime())
-                .max(LocalDateTime::compareTo);
-        if (endEpicTime.isPresent()) {
-            return endEpicTime.get();
-        } else {
-            return null;
-        }
+        return ends.isEmpty() ? null : ends.lastKey();
     }
 
     @Override
     public String convertToString() {
-        String string = getId().toString() + "," + getType().toString() + "," + getName() + "," + getStatus().toString()
-                + "," + getDescription();
+        String string = getId().toString() + "," + getType().toString() + "," + escape(getName()) + ","
+                + getStatus().toString() + "," + escape(getDescription());
 
         if (getDuration() != null && getStartTime() != null) {
             return string + "," + getDuration().toMinutes() + "," + getStartTime().toString();
@@ -131,4 +153,79 @@ public class Epic extends Task {
 
         return string;
     }
+
+    private void account(Subtask subtask) {
+        LocalDateTime subtaskStart = subtask.getStartTime();
+        Duration subtaskDuration = subtask.getDuration();
+        LocalDateTime subtaskEnd = subtaskStart != null && subtaskDuration != null ? subtask.getEndTime() : null;
+        Accounted values = new Accounted(subtask.getStatus(), subtaskDuration, subtaskStart, subtaskEnd);
+
+        accounted.put(subtask.getId(), values);
+        if (values.status() != null) {
+            statusCounts[values.status().ordinal()]++;
+        }
+        if (subtaskDuration != null) {
+            totalDuration = totalDuration.plus(subtaskDuration);
+        }
+        if (subtaskStart != null) {
+            starts.merge(subtaskStart, 1, Integer::sum);
+        }
+        if (subtaskEnd != null) {
+            ends.merge(subtaskEnd, 1, Integer::sum);
+        }
+    }
+
+    private void discount(Integer subtaskId) {
+        Accounted values = accounted.remove(subtaskId);
+
+        if (values == null) {
+            return;
+        }
+        if (values.status() != null) {
+            statusCounts[values.status().ordinal()]--;
+        }
+        if (values.duration() != null) {
+            totalDuration = totalDuration.minus(values.duration());
+        }
+        if (values.startTime() != null) {
+            decrement(starts, values.startTime());
+        }
+        if (values.endTime() != null) {
+            decrement(ends, values.endTime());
+        }
+    }
+
+    // обход и размер берутся прямо из карты подзадач, доступ по индексу проходит её от начала
+    private class SubtasksView extends AbstractList<Subtask> {
+        @Override
+        public Subtask get(int index) {
+            Objects.checkIndex(index, subtasks.size());
+
+            Iterator<Subtask> iterator = iterator();
+            for (int i = 0; i < index; i++) {
+                iterator.next();
+            }
+
+            return iterator.next();
+        }
+
+        @Override
+        public Iterator<Subtask> iterator() {
+            return Collections.unmodifiableCollection(subtasks.values()).iterator();
+        }
+
+        @Override
+        public int size() {
+            return subtasks.size();
+        }
+
+        @Override
+        public boolean contains(Object object) {
+            return object instanceof Task task && task.getId() != null && subtasks.containsKey(task.getId());
+        }
+    }
+
+    private static void decrement(TreeMap<LocalDateTime, Integer> times, LocalDateTime time) {
+        times.computeIfPresent(time, (key, count) -> count == 1 ? null : count - 1);
+    }
 }
@@ -2,16 +2,36 @@ package ru.practicum.javakanban.model;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 
+/*
+Список просмотров без повторов. При заданной ёмкости добавление сверх неё вытесняет самый давний просмотр из
+головы списка за O(1), поэтому список и карта узлов не растут бесконечно. История хранит только ссылки на задачи
+менеджера, так что занимаемая ею память пропорциональна числу записей и ограничивается ёмкостью.
+*/
 public class LinkedTaskList {
+    public static final int UNBOUNDED = Integer.MAX_VALUE;
+
     public Node head;
     public Node tail;
     HashMap<Integer, Node> linkedTaskMap = new HashMap<>();
+    private final int capacity;
+    private long views;
 
     public LinkedTaskList() {
+        this(UNBOUNDED);
+    }
+
+    public LinkedTaskList(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Ёмкость истории должна быть положительной");
+        }
+
         head = null;
         tail = null;
+        this.capacity = capacity;
     }
 
     public void linkLast(Task task) {
@@ -20,7 +40,7 @@ public class LinkedTaskList {
         }
 
         final Node oldTail = tail;
-        final Node node = new Node(oldTail, task, null);
+        final Node node = new Node(oldTail, task, null, ++views);
         tail = node;
 
         if (oldTail == null) {
@@ -29,6 +49,49 @@ public class LinkedTaskList {
             oldTail.setNext(node);
         }
         linkedTaskMap.put(task.getId(), node);
+
+        if (linkedTaskMap.size() > capacity) {
+            removeNode(head);
+        }
+    }
+
+    /*
+    Возвращает на место просмотр, убранный из списка: задача встаёт среди оставшихся просмотров по своему номеру,
+    как если бы её не убирали. Обход идёт от последнего просмотра до места вставки. Если задачу уже просмотрели
+    заново, остаётся более поздний просмотр; при переполнении вытесняется самый давний.
+    */
+    public void restore(Task task, long stamp) {
+        if (linkedTaskMap.containsKey(task.getId())) {
+            return;
+        }
+
+        Node next = null;
+        Node prev = tail;
+        while (prev != null && prev.getStamp() > stamp) {
+            next = prev;
+            prev = prev.getPrev();
+        }
+
+        final Node node = new Node(prev, task, next, stamp);
+        if (prev == null) {
+            head = node;
+        } else {
+            prev.setNext(node);
+        }
+        if (next == null) {
+            tail = node;
+        } else {
+            next.setPrev(node);
+        }
+        linkedTaskMap.put(task.getId(), node);
+
+        if (linkedTaskMap.size() > capacity) {
+            removeNode(head);
+        }
+    }
+
+    public Node getNode(int id) {
+        return linkedTaskMap.get(id);
     }
 
     public List<Task> getTasks() {
@@ -45,6 +108,54 @@ public class LinkedTaskList {
         return historyTasks;
     }
 
+    public List<Task> getTasks(int limit) {
+        return collect(tail, limit);
+    }
+
+    // просмотры, сделанные раньше просмотра задачи id: узел находится по карте, обход идёт только по странице
+    public List<Task> getTasksBefore(int id, int limit) {
+        Node node = linkedTaskMap.get(id);
+
+        return node == null ? collect(null, limit) : collect(node.getPrev(), limit);
+    }
+
+    // ленивый обход от последнего просмотра к первому; список нельзя менять, пока идёт обход
+    public Iterator<Task> iterator() {
+        return new Iterator<>() {
+            private Node nextNode = tail;
+
+            @Override
+            public boolean hasNext() {
+                return nextNode != null;
+            }
+
+            @Override
+            public Task next() {
+                if (nextNode == null) {
+                    throw new NoSuchElementException();
+                }
+
+                Task task = nextNode.getTask();
+                nextNode = nextNode.getPrev();
+                return task;
+            }
+        };
+    }
+
+    private List<Task> collect(Node from, int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Размер страницы истории не может быть отрицательным");
+        }
+
+        List<Task> page = new ArrayList<>(Math.min(limit, linkedTaskMap.size()));
+
+        for (Node node = from; node != null && page.size() < limit; node = node.getPrev()) {
+            page.add(node.getTask());
+        }
+
+        return page;
+    }
+
     public void removeNode(Node node) {
         final Node next = node.getNext();
         final Node prev = node.getPrev();
@@ -73,4 +184,12 @@ public class LinkedTaskList {
         }
     }
 
+    public int size() {
+        return linkedTaskMap.size();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
 }
@@ -4,11 +4,18 @@ public class Node {
     private Task task;
     private Node next;
     private Node prev;
+    private final long stamp;
 
     public Node(Node prev, Task task, Node next) {
+        this(prev, task, next, 0);
+    }
+
+    // stamp — номер просмотра в списке: чем позже просмотр, тем больше номер
+    public Node(Node prev, Task task, Node next, long stamp) {
         this.task = task;
         this.next = next;
         this.prev = prev;
+        this.stamp = stamp;
     }
 
     public Task getTask() {
@@ -38,4 +45,8 @@ public class Node {
     public int getTaskId() {
         return task.getId();
     }
+
+    public long getStamp() {
+        return stamp;
+    }
 }
@@ -48,8 +48,8 @@ public class Subtask extends Task {
 
     @Override
     public String convertToString() {
-        return getId().toString() + "," + getType().toString() + "," + getName() + "," +
-                getStatus().toString() + "," + getDescription() + "," + getDuration().toMinutes() + "," +
+        return getId().toString() + "," + getType().toString() + "," + escape(getName()) + "," +
+                getStatus().toString() + "," + escape(getDescription()) + "," + getDuration().toMinutes() + "," +
                 getStartTime().toString() + "," + getEpicId().toString();
     }
 }
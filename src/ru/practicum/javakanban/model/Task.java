@@ -130,7 +130,17 @@ public class Task {
     }
 
     public String convertToString() {
-        return getId().toString() + "," + getType().toString() + "," + getName() + "," +
-                getStatus().toString() + "," + getDescription() + "," + getDuration().toMinutes() + "," + getStartTime().toString();
+        return getId().toString() + "," + getType().toString() + "," + escape(getName()) + "," +
+                getStatus().toString() + "," + escape(getDescription()) + "," + getDuration().toMinutes() + "," + getStartTime().toString();
+    }
+
+    // поля с запятыми, кавычками или переводами строк берутся в кавычки, иначе они ломают csv
+    protected static String escape(String value) {
+        if (value == null || (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0
+                && value.indexOf('\r') < 0)) {
+            return String.valueOf(value);
+        }
+
+        return '"' + value.replace("\"", "\"\"") + '"';
     }
 }
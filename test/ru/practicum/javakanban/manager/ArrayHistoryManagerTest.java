@@ -0,0 +1,121 @@
+package ru.practicum.javakanban.manager;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.practicum.javakanban.model.Status;
+import ru.practicum.javakanban.model.Task;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ArrayHistoryManagerTest {
+
+    private ArrayHistoryManager arrayHistoryManager;
+    private static LocalDateTime TASKS_DATE_TIME = LocalDateTime.of(2024, 12, 31, 12, 30);
+    private static Duration TASKS_DURATION = Duration.ofMinutes(30);
+
+    @BeforeEach
+    public void createArrayHistoryManager() {
+        arrayHistoryManager = Managers.getArrayHistory(3);
+    }
+
+    @Test
+    public void addTheSameTaskMovesItToTheTop() {
+        Task first = createTestTask(1);
+        Task second = createTestTask(2);
+
+        arrayHistoryManager.add(first);
+        arrayHistoryManager.add(second);
+        arrayHistoryManager.add(first);
+
+        assertEquals(List.of(first, second), arrayHistoryManager.getHistory(), "Неверный порядок истории");
+    }
+
+    @Test
+    public void fullHistoryEvictsOldestAndReusesRemovedSlots() {
+        Task[] viewed = new Task[5];
+        for (int i = 0; i < viewed.length; i++) {
+            viewed[i] = createTestTask(i + 1);
+        }
+
+        arrayHistoryManager.add(viewed[0]);
+        arrayHistoryManager.add(viewed[1]);
+        arrayHistoryManager.add(viewed[2]);
+        arrayHistoryManager.add(viewed[3]);
+        arrayHistoryManager.remove(viewed[2].getId());
+        arrayHistoryManager.add(viewed[4]);
+
+        assertAll(
+                () -> assertEquals(List.of(viewed[4], viewed[3], viewed[1]), arrayHistoryManager.getHistory(),
+                        "Вытеснена не самая давняя задача"),
+                () -> assertEquals(3, arrayHistoryManager.size(), "История превысила ёмкость")
+        );
+    }
+
+    @Test
+    public void copyHistoryFillsCallerBuffer() {
+        Task first = createTestTask(1);
+        Task second = createTestTask(2);
+        Task[] buffer = new Task[1];
+        arrayHistoryManager.add(first);
+        arrayHistoryManager.add(second);
+
+        int count = arrayHistoryManager.copyHistory(buffer);
+
+        assertAll(
+                () -> assertEquals(1, count, "Записано больше, чем вмещает буфер"),
+                () -> assertEquals(second, buffer[0], "В начале буфера не последний просмотр")
+        );
+    }
+
+    @Test
+    public void pagesAndStreamFollowHistoryOrder() {
+        Task first = createTestTask(1);
+        Task second = createTestTask(2);
+        Task third = createTestTask(3);
+        arrayHistoryManager.add(first);
+        arrayHistoryManager.add(second);
+        arrayHistoryManager.add(third);
+
+        assertAll(
+                () -> assertEquals(List.of(third, second), arrayHistoryManager.getHistory(2),
+                        "Неверная первая страница"),
+                () -> assertEquals(List.of(first), arrayHistoryManager.getHistoryAfter(second.getId(), 2),
+                        "Неверная следующая страница"),
+                () -> assertEquals(arrayHistoryManager.getHistory(), arrayHistoryManager.streamHistory().toList(),
+                        "Поток не совпадает с историей")
+        );
+    }
+
+    @Test
+    public void randomViewsMatchLinkedHistory() {
+        ArrayHistoryManager arrayHistory = Managers.getArrayHistory(16);
+        HistoryManager linkedHistory = Managers.getBoundedHistory(16);
+        Task[] viewed = new Task[64];
+        for (int i = 0; i < viewed.length; i++) {
+            viewed[i] = createTestTask(i * 32 + 1);
+        }
+        Random random = new Random(42);
+
+        for (int i = 0; i < 10_000; i++) {
+            Task someTask = viewed[random.nextInt(viewed.length)];
+            if (random.nextInt(4) == 0) {
+                arrayHistory.remove(someTask.getId());
+                linkedHistory.remove(someTask.getId());
+            } else {
+                arrayHistory.add(someTask);
+                linkedHistory.add(someTask);
+            }
+        }
+
+        assertEquals(linkedHistory.getHistory(), arrayHistory.getHistory(), "Истории разошлись");
+    }
+
+    private Task createTestTask(int id) {
+        return new Task("Задача", "Описание задачи", id, Status.NEW, TASKS_DURATION, TASKS_DATE_TIME);
+    }
+}
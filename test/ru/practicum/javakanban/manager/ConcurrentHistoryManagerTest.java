@@ -0,0 +1,73 @@
+package ru.practicum.javakanban.manager;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.practicum.javakanban.model.Status;
+import ru.practicum.javakanban.model.Task;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrentHistoryManagerTest {
+
+    private HistoryManager concurrentHistoryManager;
+    private static LocalDateTime TASKS_DATE_TIME = LocalDateTime.of(2024, 12, 31, 12, 30);
+    private static Duration TASKS_DURATION = Duration.ofMinutes(30);
+
+    @BeforeEach
+    public void createConcurrentHistoryManager() {
+        concurrentHistoryManager = new ConcurrentHistoryManager(Managers.getDefaultHistory());
+    }
+
+    @Test
+    public void viewsAndRemovalsKeepTheirOrder() {
+        Task first = createTestTask(1);
+        Task second = createTestTask(2);
+
+        concurrentHistoryManager.add(first);
+        concurrentHistoryManager.add(second);
+        concurrentHistoryManager.remove(first.getId());
+        concurrentHistoryManager.add(first);
+        concurrentHistoryManager.remove(second.getId());
+
+        assertEquals(List.of(first), concurrentHistoryManager.getHistory(), "Нарушен порядок просмотров и удалений");
+    }
+
+    @Test
+    public void parallelViewsAreAllMergedWithoutDuplicates() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+
+        // каждый поток просматривает все задачи, поэтому каждая должна остаться в истории один раз
+        for (int i = 0; i < 8; i++) {
+            futures.add(executor.submit(() -> {
+                for (int id = 1; id <= 3000; id++) {
+                    concurrentHistoryManager.add(createTestTask(id));
+                }
+            }));
+        }
+
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        List<Task> history = concurrentHistoryManager.getHistory();
+
+        assertAll(
+                () -> assertEquals(3000, history.size(), "Потерялись просмотры"),
+                () -> assertEquals(3000, new HashSet<>(history).size(), "В истории есть повторы")
+        );
+    }
+
+    private Task createTestTask(int id) {
+        return new Task("Задача", "Описание задачи", id, Status.NEW, TASKS_DURATION, TASKS_DATE_TIME);
+    }
+}
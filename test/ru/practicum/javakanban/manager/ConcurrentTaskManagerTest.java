@@ -0,0 +1,12 @@
+package ru.practicum.javakanban.manager;
+
+import org.junit.jupiter.api.BeforeEach;
+
+public class ConcurrentTaskManagerTest extends ThreadSafeManagersTest {
+
+    @Override
+    @BeforeEach
+    public void createTaskManager() {
+        taskManager = Managers.getConcurrent();
+    }
+}
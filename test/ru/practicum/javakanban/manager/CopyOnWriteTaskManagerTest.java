@@ -0,0 +1,75 @@
+package ru.practicum.javakanban.manager;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.practicum.javakanban.exeptions.ManagerPrioritizeException;
+import ru.practicum.javakanban.model.Epic;
+import ru.practicum.javakanban.model.Status;
+import ru.practicum.javakanban.model.Subtask;
+import ru.practicum.javakanban.model.Task;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CopyOnWriteTaskManagerTest extends ThreadSafeManagersTest {
+
+    @Override
+    @BeforeEach
+    public void createTaskManager() {
+        taskManager = Managers.getReadOptimized();
+    }
+
+    @Test
+    public void readsReturnPublishedSnapshot() throws ManagerPrioritizeException {
+        task = new Task("Задача", "Описание задачи", TASKS_DURATION, TASKS_DATE_TIME);
+        taskManager.createTask(task);
+        List<Task> prioritized = taskManager.getPrioritizedTasks();
+
+        taskManager.createTask(new Task("Вторая задача", "Описание", TASKS_DURATION, TASKS_DATE_TIME.plusHours(1)));
+
+        assertAll(
+                () -> assertEquals(List.of(task), prioritized, "Опубликованный снимок изменился"),
+                () -> assertEquals(2, taskManager.getPrioritizedTasks().size(), "Новый снимок не опубликован"),
+                () -> assertThrows(UnsupportedOperationException.class, () -> taskManager.getTasks().clear(),
+                        "Снимок можно изменить")
+        );
+    }
+
+    @Test
+    public void transactionReadsItsOwnWrites() throws ManagerPrioritizeException {
+        task = new Task("Задача", "Описание задачи", TASKS_DURATION, TASKS_DATE_TIME);
+        List<Task> seen = new ArrayList<>();
+
+        taskManager.runInTransaction(manager -> {
+            manager.createTask(task);
+            seen.add(manager.getTask(task.getId()));
+            seen.addAll(manager.getPrioritizedTasks());
+        });
+
+        assertEquals(List.of(task, task), seen, "Пакет не видит свои изменения");
+    }
+
+    @Test
+    public void publishedEpicIsDetachedFromWriter() throws ManagerPrioritizeException {
+        epic = new Epic("Эпик", "Описание эпика");
+        taskManager.createEpic(epic);
+        taskManager.createSubtask(new Subtask("Подзадача", "Описание", TASKS_DURATION, TASKS_DATE_TIME),
+                epic.getId());
+        Epic published = taskManager.getEpic(epic.getId());
+
+        taskManager.createSubtask(new Subtask("Выполненная подзадача", "Описание", Status.DONE, TASKS_DURATION,
+                TASKS_DATE_TIME.plusHours(1)), epic.getId());
+
+        assertAll(
+                () -> assertNotSame(epic, published, "Читателю отдан эпик писателя"),
+                () -> assertEquals(1, published.getSubtasks().size(), "Опубликованный эпик изменился"),
+                () -> assertEquals(TASKS_DURATION, published.getDuration(), "Длительность копии изменилась"),
+                () -> assertEquals(2, taskManager.getEpic(epic.getId()).getSubtasks().size(),
+                        "Изменённый эпик не опубликован"),
+                () -> assertEquals(Status.IN_PROGRESS, taskManager.getEpic(epic.getId()).getStatus(),
+                        "Статус эпика не опубликован")
+        );
+    }
+}
@@ -0,0 +1,66 @@
+package ru.practicum.javakanban.manager;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.javakanban.exeptions.ManagerPrioritizeException;
+import ru.practicum.javakanban.model.Epic;
+import ru.practicum.javakanban.model.Task;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EventLoopAsyncTaskManagerTest {
+    private static final Duration TASKS_DURATION = Duration.ofMinutes(30);
+    private static final LocalDateTime TASKS_DATE_TIME = LocalDateTime.of(2024, 5, 1, 10, 0);
+
+    @Test
+    public void changesCompleteAfterTheyAreVisible() {
+        try (EventLoopAsyncTaskManager asyncTaskManager = Managers.getAsync()) {
+            Task task = new Task("Задача", "Описание задачи", TASKS_DURATION, TASKS_DATE_TIME);
+            Task crossedTask = new Task("Вторая задача", "Описание", TASKS_DURATION, TASKS_DATE_TIME);
+
+            CompletableFuture<Void> created = asyncTaskManager.createTask(task);
+            CompletableFuture<Void> crossed = asyncTaskManager.createTask(crossedTask);
+            created.join();
+
+            assertAll(
+                    () -> assertEquals(task, asyncTaskManager.getTask(task.getId()).join(), "Задача не видна"),
+                    () -> assertInstanceOf(ManagerPrioritizeException.class,
+                            assertThrows(CompletionException.class, crossed::join).getCause(),
+                            "Пересечение по времени не передано в будущее"),
+                    () -> assertEquals(List.of(task), asyncTaskManager.getHistory().join(), "Просмотр не попал в историю"),
+                    () -> assertTrue(asyncTaskManager.findFreeSlot(Duration.ZERO, TASKS_DATE_TIME)
+                            .isCompletedExceptionally(), "Ошибка аргумента не передана в будущее")
+            );
+        }
+    }
+
+    @Test
+    public void changesCompleteWhenJournalIsSyncedByPolicy() throws IOException {
+        File file = File.createTempFile("taskManagerCsv", ".csv");
+
+        try (EventLoopAsyncTaskManager asyncTaskManager = Managers.getAsync(file, DurabilityPolicy.everyRecords(2))) {
+            // первое изменение записывает снимок, журнал начинается со следующего
+            asyncTaskManager.createEpic(new Epic("Эпик", "Описание эпика")).join();
+            CompletableFuture<Void> first = asyncTaskManager.createTask(
+                    new Task("Задача 1", "Описание", TASKS_DURATION, TASKS_DATE_TIME));
+            asyncTaskManager.getHistory().join();
+
+            assertFalse(first.isDone(), "Изменение завершилось до сброса журнала на диск");
+
+            CompletableFuture<Void> second = asyncTaskManager.createTask(
+                    new Task("Задача 2", "Описание", TASKS_DURATION, TASKS_DATE_TIME.plusHours(1)));
+            CompletableFuture.allOf(first, second).join();
+        }
+
+        FileBackedTaskManager restored = FileBackedTaskManager.loadFromFile(file, StorageMode.JOURNAL);
+
+        assertEquals(2, restored.getAllTasks().size(), "Сохранённые изменения не восстановились");
+    }
+}
@@ -0,0 +1,184 @@
+package ru.practicum.javakanban.manager;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.practicum.javakanban.exeptions.ManagerPrioritizeException;
+import ru.practicum.javakanban.model.Epic;
+import ru.practicum.javakanban.model.Subtask;
+import ru.practicum.javakanban.model.Task;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EventLoopTaskManagerTest extends ThreadSafeManagersTest {
+    private EventLoopTaskManager eventLoopTaskManager;
+
+    @Override
+    @BeforeEach
+    public void createTaskManager() {
+        eventLoopTaskManager = Managers.getEventLoop();
+        taskManager = eventLoopTaskManager;
+    }
+
+    @AfterEach
+    public void closeTaskManager() {
+        eventLoopTaskManager.close();
+    }
+
+    // сценарии с параллельными писателями проверяются на виртуальных потоках
+    @Override
+    protected ExecutorService newWriters() {
+        return Executors.newVirtualThreadPerTaskExecutor();
+    }
+
+    @Test
+    public void submitCompletesAfterChangeIsPublished() {
+        task = new Task("Задача", "Описание задачи", TASKS_DURATION, TASKS_DATE_TIME);
+        Task crossedTask = new Task("Вторая задача", "Описание", TASKS_DURATION, TASKS_DATE_TIME);
+
+        CompletableFuture<Integer> created = eventLoopTaskManager.submit(taskManager -> {
+            taskManager.createTask(task);
+            return task.getId();
+        });
+        CompletableFuture<Integer> crossed = eventLoopTaskManager.submit(taskManager -> {
+            taskManager.createTask(crossedTask);
+            return crossedTask.getId();
+        });
+
+        assertAll(
+                () -> assertEquals(task, taskManager.getTask(created.join()), "Задача не опубликована"),
+                () -> assertInstanceOf(ManagerPrioritizeException.class,
+                        assertThrows(CompletionException.class, crossed::join).getCause(),
+                        "Ошибка операции не передана вызывающему"),
+                () -> assertEquals(List.of(task), taskManager.getPrioritizedTasks(),
+                        "Неверный список приоритизации")
+        );
+    }
+
+    @Test
+    public void submitAfterCloseFails() {
+        eventLoopTaskManager.close();
+
+        assertThrows(CompletionException.class, () -> eventLoopTaskManager.submit(TaskManager::getHistory).join(),
+                "Остановленный менеджер принял операцию");
+    }
+
+    @Test
+    public void errorInOperationFailsOnlyItsFuture() {
+        CompletableFuture<Object> failed = eventLoopTaskManager.submit(taskManager -> {
+            throw new AssertionError("Ошибка операции");
+        });
+
+        assertAll(
+                () -> assertInstanceOf(AssertionError.class,
+                        assertThrows(CompletionException.class, failed::join).getCause(),
+                        "Error не передан вызывающему"),
+                () -> assertEquals(List.of(), eventLoopTaskManager.submit(TaskManager::getAllTasks)
+                        .get(5, TimeUnit.SECONDS), "Цикл остановился после Error")
+        );
+    }
+
+    @Test
+    public void contextThatSkipsOperationFailsOnlyItsFuture() throws Exception {
+        AtomicBoolean skipped = new AtomicBoolean();
+        // контекст истории, который один раз не выполняет переданное действие
+        HistoryManager skippingHistory = new InMemoryHistoryManager() {
+            @Override
+            public Executor callerContext() {
+                return action -> {
+                    if (!skipped.compareAndSet(false, true)) {
+                        action.run();
+                    }
+                };
+            }
+        };
+
+        try (EventLoopTaskManager skipping = new EventLoopTaskManager(new InMemoryTaskManager(skippingHistory))) {
+            CompletableFuture<Object> lost = skipping.submit(taskManager -> null);
+
+            assertAll(
+                    () -> assertThrows(ExecutionException.class, () -> lost.get(5, TimeUnit.SECONDS),
+                            "Невыполненная операция завершилась успешно"),
+                    () -> assertEquals(List.of(), skipping.submit(TaskManager::getAllTasks)
+                            .get(5, TimeUnit.SECONDS), "Цикл остановился")
+            );
+        }
+    }
+
+    @Test
+    public void publishedEpicIsNotChangedByLaterWrites() throws ManagerPrioritizeException {
+        epic = new Epic("Эпик", "Описание эпика");
+        taskManager.createEpic(epic);
+        Epic published = taskManager.getEpic(epic.getId());
+
+        taskManager.createSubtask(new Subtask("Подзадача", "Описание", TASKS_DURATION, TASKS_DATE_TIME),
+                epic.getId());
+
+        assertAll(
+                () -> assertNull(published.getStartTime(), "Опубликованный эпик изменился после записи"),
+                () -> assertTrue(published.getSubtasks().isEmpty(), "У опубликованного эпика появилась подзадача"),
+                () -> assertEquals(TASKS_DATE_TIME, taskManager.getEpic(epic.getId()).getStartTime(),
+                        "Новая версия эпика не опубликована"),
+                () -> assertEquals(1, taskManager.getEpicSubtasks(epic.getId()).size(),
+                        "Подзадачи эпика не опубликованы")
+        );
+    }
+
+    @Test
+    public void viewDoesNotWaitForFullQueue() throws Exception {
+        try (EventLoopTaskManager smallQueue = new EventLoopTaskManager(Managers.getDefault(), 1, 1)) {
+            task = new Task("Задача", "Описание задачи", TASKS_DURATION, TASKS_DATE_TIME);
+            smallQueue.createTask(task);
+
+            CountDownLatch release = new CountDownLatch(1);
+            smallQueue.submit(taskManager -> {
+                try {
+                    return release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    return false;
+                }
+            });
+            smallQueue.submit(taskManager -> null);
+
+            CompletableFuture<Task> viewed = CompletableFuture.supplyAsync(() -> smallQueue.getTask(task.getId()));
+            Task seen = viewed.get(1, TimeUnit.SECONDS);
+            release.countDown();
+
+            assertAll(
+                    () -> assertEquals(task, seen, "Задача не прочитана"),
+                    () -> assertEquals(List.of(task), smallQueue.getHistory(), "Просмотр не попал в историю")
+            );
+        }
+    }
+
+    @Test
+    public void submitRacingWithCloseAlwaysCompletes() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<CompletableFuture<Object>>> submitted = new ArrayList<>();
+
+        for (int i = 0; i < 200; i++) {
+            submitted.add(executor.submit(() -> eventLoopTaskManager.submit(taskManager -> null)));
+        }
+        eventLoopTaskManager.close();
+
+        for (Future<CompletableFuture<Object>> future : submitted) {
+            CompletableFuture<Object> result = future.get(5, TimeUnit.SECONDS);
+            assertDoesNotThrow(() -> result.handle((value, error) -> null).get(5, TimeUnit.SECONDS),
+                    "Операция, принятая во время остановки, не завершилась");
+        }
+        executor.shutdown();
+    }
+}
@@ -2,23 +2,34 @@ package ru.practicum.javakanban.manager;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.practicum.javakanban.exeptions.ManagerLoadException;
+import ru.practicum.javakanban.exeptions.ManagerSaveException;
 import ru.practicum.javakanban.exeptions.ManagerPrioritizeException;
 import ru.practicum.javakanban.model.Epic;
+import ru.practicum.javakanban.model.Status;
 import ru.practicum.javakanban.model.Subtask;
 import ru.practicum.javakanban.model.Task;
 
 import java.io.*;
 import java.nio.file.Files;
-import java.nio.file.Paths;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
 import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.junit.jupiter.api.Assertions.*;
 
 class FileBackedTaskManagerTest extends ManagersTest {
-    private final String resources = ".\\src\\resources";
+    @TempDir
+    Path resources;
     protected FileBackedTaskManager fileBackedTaskManager;
     private Task task;
     private Epic epic;
@@ -29,8 +40,8 @@ class FileBackedTaskManagerTest extends ManagersTest {
     @Override
     @BeforeEach
     public void createTaskManager() throws IOException {
-        /*здесь также можно использовать метод createFile(), который создаст файл в папке resources, что может быть
-        удобнее для отладки*/
+        /*здесь также можно использовать метод createFile(), который создаст файл с постоянным именем во временной
+        папке теста, что может быть удобнее для отладки*/
         taskManager = Managers.getFileBacked(createFile());
         fileBackedTaskManager = Managers.getFileBacked(createTempFile());
     }
@@ -249,19 +260,587 @@ class FileBackedTaskManagerTest extends ManagersTest {
 
     }
 
+    @Test
+    public void journalModeRestoresStateFromSnapshotAndLog() throws IOException, ManagerPrioritizeException {
+        FileBackedTaskManager journaled = Managers.getJournaled(createTempFile());
+        task = new Task("Задача", "Описание задачи", TASKS_DURATION, TASKS_DATE_TIME);
+        journaled.createTask(task);
+        epic = new Epic("Эпик", "Описание эпика");
+        journaled.createEpic(epic);
+        subtask = new Subtask("Подзадача", "Описание подзадачи", TASKS_DURATION,
+                LocalDateTime.of(2024, 11, 17, 11, 20));
+        journaled.createSubtask(subtask, epic.getId());
+        Task updateTask = new Task("Новое название задачи", task.getDescription(), Status.DONE,
+                task.getDuration(), task.getStartTime());
+        journaled.updateTask(updateTask, task.getId());
+        Task deletedTask = new Task("Удалённая задача", "Описание", TASKS_DURATION,
+                LocalDateTime.of(2025, 1, 10, 10, 0));
+        journaled.createTask(deletedTask);
+        journaled.deleteTask(deletedTask.getId());
+
+        FileBackedTaskManager restored = FileBackedTaskManager.loadFromFile(journaled.getTaskManagerCsv(),
+                StorageMode.JOURNAL);
+
+        assertAll(
+                () -> assertEquals(1, restored.getTasks().size(), "Неожиданное количество задач"),
+                () -> assertEquals("Новое название задачи", restored.getTask(task.getId()).getName(),
+                        "Обновление задачи не восстановилось из журнала"),
+                () -> assertNull(restored.getTask(deletedTask.getId()), "Удалённая задача восстановилась"),
+                () -> assertEquals(List.of(subtask), restored.getEpicSubtasks(epic.getId()),
+                        "Подзадача не привязалась к эпику"),
+                () -> assertEquals(2, restored.getPrioritizedTasks().size(), "Неверный список приоритизации")
+        );
+    }
+
+    @Test
+    public void journalModeAppendsInsteadOfRewritingSnapshot() throws IOException, ManagerPrioritizeException {
+        FileBackedTaskManager journaled = Managers.getJournaled(createTempFile());
+        epic = new Epic("Эпик", "Описание эпика");
+        journaled.createEpic(epic);
+        long snapshotSize = journaled.getTaskManagerCsv().length();
+
+        task = new Task("Задача", "Описание задачи", TASKS_DURATION, TASKS_DATE_TIME);
+        journaled.createTask(task);
+        journaled.deleteEpic(epic.getId());
+
+        List<String> records = Files.readAllLines(journaled.getJournalFile().toPath(), UTF_8);
+
+        assertAll(
+                () -> assertEquals(snapshotSize, journaled.getTaskManagerCsv().length(), "Снимок перезаписался"),
+                () -> assertEquals(List.of("UPSERT," + task.convertToString(), "DELETE," + epic.getId()), records,
+                        "В журнале неожиданные записи")
+        );
+    }
+
+    @Test
+    public void compactionWritesSnapshotAndRemovesLogSegments() throws IOException, ManagerPrioritizeException {
+        File file = createTempFile();
+        FileBackedTaskManager journaled = new FileBackedTaskManager(Managers.getDefaultHistory(), file,
+                StorageMode.JOURNAL, new CompactionPolicy(1024 * 1024, 3));
+        epic = new Epic("Эпик", "Описание эпика");
+        journaled.createEpic(epic);
+
+        for (int i = 0; i < 10; i++) {
+            journaled.createSubtask(new Subtask("Подзадача " + i, "Описание", TASKS_DURATION,
+                    TASKS_DATE_TIME.plusHours(i)), epic.getId());
+        }
+        journaled.compact().join();
+        journaled.close();
+
+        FileBackedTaskManager restored = FileBackedTaskManager.loadFromFile(file, StorageMode.JOURNAL);
+
+        assertAll(
+                () -> assertEquals(0, journaled.getJournalFile().length(), "Журнал не сжался"),
+                () -> assertTrue(new TaskJournal(journaled.getJournalFile()).getSegments().isEmpty(),
+                        "Сегменты журнала не удалились после сжатия"),
+                () -> assertEquals(10, restored.getEpicSubtasks(epic.getId()).size(),
+                        "Подзадачи эпика не восстановились после сжатия"),
+                () -> assertEquals(journaled.getEpics().get(epic.getId()).getStatus(),
+                        restored.getEpic(epic.getId()).getStatus(), "Статус эпика не восстановился")
+        );
+    }
+
+    @Test
+    public void compactionWithGroupCommitKeepsRecordsAfterRotation() throws IOException, ManagerPrioritizeException {
+        File file = createTempFile();
+        FileBackedTaskManager journaled = new FileBackedTaskManager(Managers.getDefaultHistory(), file,
+                StorageMode.JOURNAL, new CompactionPolicy(1024 * 1024, 3), DurabilityPolicy.everyMillis(60_000));
+        epic = new Epic("Эпик", "Описание эпика");
+        journaled.createEpic(epic);
+
+        // сжатие запускается само каждые три записи, а записи после закрытия сегмента идут уже в новый журнал
+        for (int i = 0; i < 20; i++) {
+            journaled.createSubtask(new Subtask("Подзадача " + i, "Описание", TASKS_DURATION,
+                    TASKS_DATE_TIME.plusHours(i)), epic.getId());
+        }
+        journaled.compact().join();
+        journaled.createTask(new Task("Задача", "Описание", TASKS_DURATION, TASKS_DATE_TIME.minusHours(1)));
+        journaled.close();
+
+        FileBackedTaskManager restored = FileBackedTaskManager.loadFromFile(file, StorageMode.JOURNAL);
+
+        assertAll(
+                () -> assertTrue(new TaskJournal(journaled.getJournalFile()).getSegments().isEmpty(),
+                        "Сегменты журнала не удалились после сжатия"),
+                () -> assertEquals(journaled.getAllSubtasks(), restored.getAllSubtasks(),
+                        "Подзадачи потерялись при сжатии"),
+                () -> assertEquals(journaled.getAllTasks(), restored.getAllTasks(),
+                        "Запись после сжатия не попала в новый журнал")
+        );
+    }
+
+    @Test
+    public void groupCommitWritesAllRecordsAfterFlush() throws IOException, ManagerPrioritizeException {
+        File file = createTempFile();
+        FileBackedTaskManager journaled = new FileBackedTaskManager(Managers.getDefaultHistory(), file,
+                StorageMode.JOURNAL, CompactionPolicy.defaultPolicy(), DurabilityPolicy.everyRecords(100));
+        epic = new Epic("Эпик", "Описание эпика");
+        journaled.createEpic(epic);
+
+        for (int i = 0; i < 20; i++) {
+            journaled.createSubtask(new Subtask("Подзадача " + i, "Описание", TASKS_DURATION,
+                    TASKS_DATE_TIME.plusHours(i)), epic.getId());
+        }
+        journaled.flush().join();
+
+        FileBackedTaskManager restored = FileBackedTaskManager.loadFromFile(file, StorageMode.JOURNAL);
+        journaled.close();
+
+        assertAll(
+                () -> assertEquals(journaled.getAllSubtasks(), restored.getAllSubtasks(),
+                        "Не все записи дошли до журнала"),
+                () -> assertEquals(20, restored.getEpicSubtasks(epic.getId()).size(),
+                        "Подзадачи эпика не восстановились из журнала")
+        );
+    }
+
+    @Test
+    public void groupCommitFailureIsReportedUntilCompaction() throws IOException, ManagerPrioritizeException {
+        File file = createTempFile();
+        FileBackedTaskManager journaled = new FileBackedTaskManager(Managers.getDefaultHistory(), file,
+                StorageMode.JOURNAL, CompactionPolicy.defaultPolicy(), DurabilityPolicy.everyWrite());
+        journaled.createTask(new Task("Задача 1", "Описание", TASKS_DURATION, TASKS_DATE_TIME));
+
+        // на месте журнала оказывается каталог, и фоновая запись в него не удаётся
+        File journalFile = journaled.getJournalFile();
+        Files.delete(journalFile.toPath());
+        Files.createDirectory(journalFile.toPath());
+
+        journaled.createTask(new Task("Задача 2", "Описание", TASKS_DURATION, TASKS_DATE_TIME.plusHours(1)));
+
+        assertAll(
+                () -> assertThrows(CompletionException.class, () -> journaled.getLastWrite().join(),
+                        "Неудачная запись завершилась успешно"),
+                () -> assertThrows(CompletionException.class, () -> journaled.flush().join(),
+                        "Сброс после неудачной записи подтвердил потерянные данные"),
+                () -> assertThrows(ManagerSaveException.class, () -> journaled.createTask(new Task("Задача 3",
+                        "Описание", TASKS_DURATION, TASKS_DATE_TIME.plusHours(2))),
+                        "Следующее изменение не узнало о сбое записи")
+        );
+
+        Files.delete(journalFile.toPath());
+        journaled.compact().join();
+        journaled.createTask(new Task("Задача 4", "Описание", TASKS_DURATION, TASKS_DATE_TIME.plusHours(3)));
+        journaled.flush().join();
+
+        FileBackedTaskManager restored = FileBackedTaskManager.loadFromFile(file, StorageMode.JOURNAL);
+        journaled.close();
+
+        assertEquals(journaled.getAllTasks(), restored.getAllTasks(), "Журнал не восстановился после сжатия");
+    }
+
+    @Test
+    public void durabilityPolicyRejectsNonPositiveThresholds() {
+        assertAll(
+                () -> assertThrows(IllegalArgumentException.class, () -> DurabilityPolicy.everyMillis(0)),
+                () -> assertThrows(IllegalArgumentException.class, () -> DurabilityPolicy.everyRecords(-1))
+        );
+    }
+
+    @Test
+    public void runInTransactionSavesOnlyCommittedBatch() throws IOException, ManagerPrioritizeException {
+        File file = createTempFile();
+        FileBackedTaskManager journaled = Managers.getJournaled(file);
+        createTestEpicIn(journaled);
+
+        journaled.runInTransaction(manager -> {
+            for (int i = 0; i < 10; i++) {
+                manager.createSubtask(new Subtask("Подзадача " + i, "Описание", TASKS_DURATION,
+                        TASKS_DATE_TIME.plusHours(i)), epic.getId());
+            }
+        });
+        List<String> committed = Files.readAllLines(journaled.getJournalFile().toPath(), UTF_8);
+
+        assertThrows(ManagerPrioritizeException.class, () -> journaled.runInTransaction(manager -> {
+            manager.createTask(new Task("Задача", "Описание", TASKS_DURATION, TASKS_DATE_TIME.minusDays(1)));
+            manager.createTask(new Task("Пересекающаяся задача", "Описание", TASKS_DURATION,
+                    TASKS_DATE_TIME.plusMinutes(10)));
+        }));
+
+        FileBackedTaskManager restored = FileBackedTaskManager.loadFromFile(file, StorageMode.JOURNAL);
+
+        assertAll(
+                () -> assertEquals(11, committed.size(), "Пакет записался в журнал не одной пачкой"),
+                () -> assertEquals(committed, Files.readAllLines(journaled.getJournalFile().toPath(), UTF_8),
+                        "Откатившийся пакет попал в журнал"),
+                () -> assertEquals(10, restored.getEpicSubtasks(epic.getId()).size(),
+                        "Подзадачи пакета не восстановились"),
+                () -> assertTrue(restored.getTasks().isEmpty(), "Задачи откатившегося пакета восстановились")
+        );
+    }
+
+    @Test
+    public void deleteAllSubtasksWritesOneJournalBatch() throws IOException, ManagerPrioritizeException {
+        File file = createTempFile();
+        FileBackedTaskManager journaled = Managers.getJournaled(file);
+        createTestEpicIn(journaled);
+
+        for (int i = 0; i < 10; i++) {
+            journaled.createSubtask(new Subtask("Подзадача " + i, "Описание", TASKS_DURATION,
+                    TASKS_DATE_TIME.plusHours(i)), epic.getId());
+        }
+        long recordsBefore = Files.readAllLines(journaled.getJournalFile().toPath(), UTF_8).size();
+
+        journaled.deleteAllSubtasks();
+
+        long records = Files.readAllLines(journaled.getJournalFile().toPath(), UTF_8).size() - recordsBefore;
+        FileBackedTaskManager restored = FileBackedTaskManager.loadFromFile(file, StorageMode.JOURNAL);
+
+        assertAll(
+                () -> assertEquals(11, records, "Удаление подзадач записалось не одной пачкой"),
+                () -> assertTrue(restored.getSubtasks().isEmpty(), "Подзадачи восстановились после удаления"),
+                () -> assertTrue(restored.getEpicSubtasks(epic.getId()).isEmpty(), "У эпика остались подзадачи")
+        );
+    }
+
+    @Test
+    public void createAndUpdateSubtaskJournalEachTaskOnce() throws IOException, ManagerPrioritizeException {
+        File file = createTempFile();
+        FileBackedTaskManager journaled = Managers.getJournaled(file);
+        createTestEpicIn(journaled);
+        Subtask someSubtask = new Subtask("Подзадача", "Описание", TASKS_DURATION, TASKS_DATE_TIME);
+        journaled.createSubtask(someSubtask, epic.getId());
+        long recordsBefore = Files.readAllLines(journaled.getJournalFile().toPath(), UTF_8).size();
+
+        journaled.createSubtask(new Subtask("Подзадача 2", "Описание", TASKS_DURATION,
+                TASKS_DATE_TIME.plusHours(1)), epic.getId());
+        long created = Files.readAllLines(journaled.getJournalFile().toPath(), UTF_8).size() - recordsBefore;
+        journaled.updateSubtask(new Subtask("Новое имя", "Описание", TASKS_DURATION, TASKS_DATE_TIME.plusHours(2)),
+                someSubtask.getId());
+        long updated = Files.readAllLines(journaled.getJournalFile().toPath(), UTF_8).size() - recordsBefore
+                - created;
+        FileBackedTaskManager restored = FileBackedTaskManager.loadFromFile(file, StorageMode.JOURNAL);
+
+        assertAll(
+                () -> assertEquals(2, created, "Подзадача и эпик записаны не по одному разу"),
+                () -> assertEquals(2, updated, "Обновление записано не одной записью на задачу"),
+                () -> assertEquals("Новое имя", restored.getSubtask(someSubtask.getId()).getName(),
+                        "Обновление не восстановилось"),
+                () -> assertEquals(2, restored.getEpicSubtasks(epic.getId()).size(), "Подзадачи эпика потерялись")
+        );
+    }
+
+    @Test
+    public void deleteWhereIsSavedToFile() throws ManagerPrioritizeException {
+        createTestTask();
+        Task kept = new Task("Оставшаяся задача", "Описание", TASKS_DURATION, TASKS_DATE_TIME.plusHours(1));
+        fileBackedTaskManager.createTask(kept);
+
+        fileBackedTaskManager.deleteWhere(someTask -> someTask.getId().equals(task.getId()));
+
+        FileBackedTaskManager restored = FileBackedTaskManager.loadFromFile(fileBackedTaskManager.getTaskManagerCsv());
+
+        assertEquals(List.of(kept), restored.getAllTasks(), "Удаление по фильтру не сохранилось в файл");
+    }
+
+    @Test
+    public void persistentHistoryIsRestoredAfterReload() throws IOException, ManagerPrioritizeException {
+        File file = createTempFile();
+        File logFile = createTempFile();
+        FileBackedTaskManager manager = new FileBackedTaskManager(Managers.getPersistentHistory(logFile), file);
+        createTestEpicIn(manager);
+        Task first = new Task("Задача 1", "Описание", TASKS_DURATION, TASKS_DATE_TIME);
+        Task second = new Task("Задача 2", "Описание", TASKS_DURATION, TASKS_DATE_TIME.plusHours(1));
+        manager.createTask(first);
+        manager.createTask(second);
+
+        manager.getTask(first.getId());
+        manager.getEpic(epic.getId());
+        manager.getTask(second.getId());
+        manager.getTask(first.getId());
+        manager.deleteTask(second.getId());
+        manager.close();
+
+        // в конец журнала дописан обрывок записи, как после сбоя во время записи
+        Files.write(logFile.toPath(), new byte[5], StandardOpenOption.APPEND);
+        FileBackedTaskManager restored = FileBackedTaskManager.loadFromFile(file,
+                Managers.getPersistentHistory(logFile));
+        List<Integer> history = restored.getHistory().stream().map(Task::getId).toList();
+        restored.close();
+
+        assertEquals(List.of(first.getId(), epic.getId()), history, "История не восстановилась после загрузки");
+    }
+
+    @Test
+    public void rolledBackBatchLeavesNoViewRecords() throws IOException, ManagerPrioritizeException {
+        File file = createTempFile();
+        File logFile = createTempFile();
+        FileBackedTaskManager manager = new FileBackedTaskManager(Managers.getPersistentHistory(logFile), file);
+        Task first = new Task("Задача 1", "Описание", TASKS_DURATION, TASKS_DATE_TIME);
+        Task second = new Task("Задача 2", "Описание", TASKS_DURATION, TASKS_DATE_TIME.plusHours(1));
+        manager.createTask(first);
+        manager.createTask(second);
+        manager.getTask(first.getId());
+        manager.getTask(second.getId());
+        long logSize = logFile.length();
+
+        assertThrows(ManagerPrioritizeException.class, () -> manager.runInTransaction(batch -> {
+            batch.getTask(first.getId());
+            batch.deleteTask(second.getId());
+            batch.createTask(new Task("Пересекающаяся задача", "Описание", TASKS_DURATION, TASKS_DATE_TIME));
+        }));
+        List<Task> history = manager.getHistory();
+        manager.close();
+
+        FileBackedTaskManager restored = FileBackedTaskManager.loadFromFile(file,
+                Managers.getPersistentHistory(logFile));
+        List<Task> restoredHistory = restored.getHistory();
+        restored.close();
+
+        assertAll(
+                () -> assertEquals(List.of(second, first), history, "История не откатилась"),
+                () -> assertEquals(logSize, logFile.length(), "Откат пакета оставил записи в журнале просмотров"),
+                () -> assertEquals(history, restoredHistory, "История после перезапуска не совпала с откатом")
+        );
+    }
+
+    @Test
+    public void everyLoaderRestoresPersistentHistory() throws IOException, ManagerPrioritizeException {
+        File file = createTempFile();
+        File logFile = createTempFile();
+        File snapshot = createTempFile();
+        FileBackedTaskManager manager = new FileBackedTaskManager(Managers.getPersistentHistory(logFile), file);
+        createTestEpicIn(manager);
+        Task first = new Task("Задача 1", "Описание", TASKS_DURATION, TASKS_DATE_TIME);
+        manager.createTask(first);
+        manager.getTask(first.getId());
+        manager.getEpic(epic.getId());
+        List<Task> history = manager.getHistory();
+        manager.saveBinarySnapshot(snapshot);
+        manager.close();
+
+        FileBackedTaskManager sequential = FileBackedTaskManager.loadFromFile(file,
+                Managers.getPersistentHistory(logFile));
+        List<Task> sequentialHistory = sequential.getHistory();
+        sequential.close();
+        FileBackedTaskManager parallel = FileBackedTaskManager.loadFromFileParallel(file, 2,
+                Managers.getPersistentHistory(logFile));
+        List<Task> parallelHistory = parallel.getHistory();
+        parallel.close();
+        FileBackedTaskManager binary = FileBackedTaskManager.loadFromBinarySnapshot(snapshot, createTempFile(),
+                Managers.getPersistentHistory(logFile));
+        List<Task> binaryHistory = binary.getHistory();
+        binary.close();
+
+        assertAll(
+                () -> assertEquals(history, sequentialHistory, "История не восстановилась при загрузке из csv"),
+                () -> assertEquals(history, parallelHistory, "История не восстановилась при параллельной загрузке"),
+                () -> assertEquals(history, binaryHistory, "История не восстановилась из двоичного снимка")
+        );
+    }
+
+    @Test
+    public void viewedWithinUsesTimeWindow() throws IOException {
+        File logFile = createTempFile();
+        Instant start = Instant.parse("2024-12-31T12:00:00Z");
+        Task first = new Task("Задача 1", "Описание", 1, Status.NEW, TASKS_DURATION, TASKS_DATE_TIME);
+        Task second = new Task("Задача 2", "Описание", 2, Status.NEW, TASKS_DURATION, TASKS_DATE_TIME);
+        Map<Integer, Task> tasks = Map.of(1, first, 2, second);
+
+        try (PersistentHistoryManager history = new PersistentHistoryManager(Managers.getDefaultHistory(), logFile,
+                Clock.fixed(start, ZoneOffset.UTC))) {
+            history.add(first);
+            history.add(second);
+        }
+
+        try (PersistentHistoryManager history = new PersistentHistoryManager(Managers.getDefaultHistory(), logFile,
+                Clock.fixed(start.plus(Duration.ofHours(2)), ZoneOffset.UTC))) {
+            history.restore(tasks::get);
+            history.add(first);
+
+            assertAll(
+                    () -> assertEquals(List.of(first), history.getViewedWithin(Duration.ofHours(1)),
+                            "В окно попали старые просмотры"),
+                    () -> assertEquals(List.of(first, second), history.getViewedBetween(start,
+                            start.plus(Duration.ofHours(3))), "Неверные просмотры за период"),
+                    () -> assertEquals(List.of(first, second), history.getHistory(), "История не восстановилась")
+            );
+        }
+    }
+
+    @Test
+    public void viewLogIsCompactedToLastViews() throws IOException {
+        File logFile = createTempFile();
+        Task first = new Task("Задача 1", "Описание", 1, Status.NEW, TASKS_DURATION, TASKS_DATE_TIME);
+        Task second = new Task("Задача 2", "Описание", 2, Status.NEW, TASKS_DURATION, TASKS_DATE_TIME);
+        Task removed = new Task("Задача 3", "Описание", 3, Status.NEW, TASKS_DURATION, TASKS_DATE_TIME);
+        Map<Integer, Task> tasks = Map.of(1, first, 2, second, 3, removed);
+
+        try (PersistentHistoryManager history = new PersistentHistoryManager(Managers.getDefaultHistory(), logFile)) {
+            history.add(removed);
+            for (int i = 0; i < 5000; i++) {
+                history.add(i % 2 == 0 ? second : first);
+            }
+            history.remove(removed.getId());
+
+            assertTrue(logFile.length() < 8 + 12 * 2048, "Журнал просмотров не сжимается");
+        }
+
+        try (PersistentHistoryManager history = new PersistentHistoryManager(Managers.getDefaultHistory(), logFile)) {
+            history.restore(tasks::get);
+            history.compact();
+
+            assertAll(
+                    () -> assertEquals(List.of(first, second), history.getHistory(), "История не восстановилась"),
+                    () -> assertEquals(8 + 12 * 2, logFile.length(), "В сжатом журнале лишние записи")
+            );
+        }
+    }
+
+    @Test
+    public void loadFromFileKeepsIdsAndDoesNotRewriteFile() throws IOException, ManagerPrioritizeException {
+        createTestEpic();
+        createTestTask();
+        File file = fileBackedTaskManager.getTaskManagerCsv();
+        List<String> before = Files.readAllLines(file.toPath(), UTF_8);
+
+        FileBackedTaskManager restored = FileBackedTaskManager.loadFromFile(file);
+        Task newTask = new Task("Новая задача", "Описание", TASKS_DURATION, LocalDateTime.of(2025, 1, 10, 10, 0));
+
+        assertAll(
+                () -> assertEquals(task.getName(), restored.getTask(task.getId()).getName(),
+                        "Задача восстановилась под другим id"),
+                () -> assertEquals(epic.getName(), restored.getEpic(epic.getId()).getName(),
+                        "Эпик восстановился под другим id"),
+                () -> assertEquals(before, Files.readAllLines(file.toPath(), UTF_8), "Загрузка изменила файл"),
+                () -> {
+                    restored.createTask(newTask);
+                    assertTrue(newTask.getId() > task.getId(), "Счётчик id не восстановился");
+                }
+        );
+    }
+
+    @Test
+    public void loadFromFileWithCrossedTasksThrowsException() throws IOException {
+        File file = createTempFile();
+        Files.write(file.toPath(), List.of(FileBackedTaskManager.HEADER,
+                "1,TASK,Задача,NEW,Описание,60,2024-12-31T12:00",
+                "2,TASK,Задача,NEW,Описание,30,2024-12-31T12:30"), UTF_8);
+
+        assertThrows(ManagerLoadException.class, () -> FileBackedTaskManager.loadFromFile(file),
+                "Загрузились пересекающиеся задачи");
+    }
+
+    @Test
+    public void fieldsWithCommasAndQuotesSurviveReload() throws ManagerPrioritizeException {
+        task = new Task("Купить молоко, хлеб", "Сказать \"спасибо\",\nпотом уйти", TASKS_DURATION,
+                LocalDateTime.of(2024, 12, 31, 12, 30, 15));
+        fileBackedTaskManager.createTask(task);
+        epic = new Epic("Эпик, с запятой", "Описание");
+        fileBackedTaskManager.createEpic(epic);
+
+        FileBackedTaskManager restored = FileBackedTaskManager.loadFromFile(fileBackedTaskManager.getTaskManagerCsv());
+        Task restoredTask = restored.getTask(task.getId());
+
+        assertAll(
+                () -> assertEquals(task.getName(), restoredTask.getName(), "Имя с запятой испортилось"),
+                () -> assertEquals(task.getDescription(), restoredTask.getDescription(),
+                        "Описание с кавычками испортилось"),
+                () -> assertEquals(task.getStartTime(), restoredTask.getStartTime(), "Время начала испортилось"),
+                () -> assertEquals(epic.getName(), restored.getEpic(epic.getId()).getName(),
+                        "Имя эпика с запятой испортилось")
+        );
+    }
+
+    @Test
+    public void parallelLoadReadsSameTasksAsSequentialLoad() throws ManagerPrioritizeException {
+        for (int i = 0; i < 20; i++) {
+            Epic someEpic = new Epic("Эпик " + i, "Описание,\nв две строки");
+            fileBackedTaskManager.createEpic(someEpic);
+            fileBackedTaskManager.createSubtask(new Subtask("Подзадача " + i, "Описание", TASKS_DURATION,
+                    TASKS_DATE_TIME.plusHours(2 * i)), someEpic.getId());
+            fileBackedTaskManager.createTask(new Task("Задача, " + i, "Описание", TASKS_DURATION,
+                    TASKS_DATE_TIME.plusHours(2 * i + 1)));
+        }
+        File file = fileBackedTaskManager.getTaskManagerCsv();
+
+        List<Task> parallel = ParallelCsvLoader.read(file, 4, 64);
+        FileBackedTaskManager restored = FileBackedTaskManager.loadFromFileParallel(file);
+
+        assertAll(
+                () -> assertEquals(60, parallel.size(), "Параллельная загрузка потеряла записи"),
+                () -> assertEquals(fileBackedTaskManager.getAllTasks().size() + fileBackedTaskManager.getAllEpics().size()
+                        + fileBackedTaskManager.getAllSubtasks().size(), parallel.size()),
+                () -> assertEquals(fileBackedTaskManager.getPrioritizedTasks(), restored.getPrioritizedTasks(),
+                        "Список приоритизации после загрузки отличается"),
+                () -> {
+                    for (Epic someEpic : fileBackedTaskManager.getAllEpics()) {
+                        assertEquals(someEpic.getDescription(), restored.getEpics().get(someEpic.getId()).getDescription());
+                        assertEquals(someEpic.getSubtasks(), restored.getEpicSubtasks(someEpic.getId()),
+                                "Подзадачи эпика не привязались");
+                    }
+                }
+        );
+    }
+
+    @Test
+    public void binarySnapshotRestoresSameState() throws IOException, ManagerPrioritizeException {
+        createTestSubtask();
+        task = new Task("Задача, \"с кавычками\"", null, TASKS_DURATION, TASKS_DATE_TIME.plusDays(1));
+        fileBackedTaskManager.createTask(task);
+        Epic emptyEpic = new Epic("Эпик без подзадач", "");
+        fileBackedTaskManager.createEpic(emptyEpic);
+        File snapshot = createTempFile();
+
+        fileBackedTaskManager.saveBinarySnapshot(snapshot);
+        FileBackedTaskManager restored = FileBackedTaskManager.loadFromBinarySnapshot(snapshot, createTempFile());
+
+        assertAll(
+                () -> assertEquals(task.convertToString(), restored.getTask(task.getId()).convertToString(),
+                        "Задача восстановилась с отличиями"),
+                () -> assertEquals(subtask.convertToString(), restored.getSubtask(subtask.getId()).convertToString(),
+                        "Подзадача восстановилась с отличиями"),
+                () -> assertEquals(epic.convertToString(), restored.getEpic(epic.getId()).convertToString(),
+                        "Эпик восстановился с отличиями"),
+                () -> assertEquals(emptyEpic.convertToString(), restored.getEpic(emptyEpic.getId()).convertToString(),
+                        "Эпик без подзадач восстановился с отличиями"),
+                () -> assertEquals(fileBackedTaskManager.getPrioritizedTasks(), restored.getPrioritizedTasks(),
+                        "Список приоритизации отличается")
+        );
+    }
+
+    @Test
+    public void binarySnapshotKeepsSecondsAndNanos() throws IOException, ManagerPrioritizeException {
+        Task first = new Task("Задача 1", "Описание", Duration.ofSeconds(10), TASKS_DATE_TIME);
+        Task second = new Task("Задача 2", "Описание", Duration.ofMillis(1500),
+                TASKS_DATE_TIME.plusSeconds(20).plusNanos(123_456_789));
+        fileBackedTaskManager.createTask(first);
+        fileBackedTaskManager.createTask(second);
+        File snapshot = createTempFile();
+
+        fileBackedTaskManager.saveBinarySnapshot(snapshot);
+        FileBackedTaskManager restored = FileBackedTaskManager.loadFromBinarySnapshot(snapshot, createTempFile());
+
+        assertAll(
+                () -> assertEquals(second.getStartTime(), restored.getTask(second.getId()).getStartTime(),
+                        "Время начала округлилось"),
+                () -> assertEquals(second.getDuration(), restored.getTask(second.getId()).getDuration(),
+                        "Длительность округлилась"),
+                () -> assertFalse(new File(snapshot.getPath() + ".tmp").exists(), "Остался временный файл")
+        );
+    }
+
+    @Test
+    public void binarySnapshotRejectsCsvFile() throws ManagerPrioritizeException {
+        createTestTask();
+
+        assertThrows(ManagerLoadException.class, () -> FileBackedTaskManager.loadFromBinarySnapshot(
+                fileBackedTaskManager.getTaskManagerCsv(), createTempFile()), "Csv прочитался как двоичный снимок");
+    }
+
     //вспомогательные методы
     public File createFile() throws IOException {
-        if (!Files.exists(Paths.get(resources, "taskManagerCsv.csv"))) {
-            Files.createDirectory(Paths.get(resources));
-            Files.createFile(Paths.get(resources, "taskManagerCsv.csv"));
+        Path file = resources.resolve("taskManagerCsv.csv");
+        if (!Files.exists(file)) {
+            Files.createFile(file);
         }
 
-        return Paths.get(resources, "taskManagerCsv.csv").toFile();
+        return file.toFile();
     }
 
     public File createTempFile() throws IOException {
 
-        return File.createTempFile("taskManagerCsv", ".csv");
+        return Files.createTempFile(resources, "taskManagerCsv", ".csv").toFile();
     }
 
     private void createTestTask() throws ManagerPrioritizeException {
@@ -269,6 +848,11 @@ class FileBackedTaskManagerTest extends ManagersTest {
         fileBackedTaskManager.createTask(task);
     }
 
+    private void createTestEpicIn(FileBackedTaskManager manager) {
+        epic = new Epic("Эпик", "Описание эпика");
+        manager.createEpic(epic);
+    }
+
     private void createTestEpic() {
         epic = new Epic("Эпик", "Описание эпика");
         fileBackedTaskManager.createEpic(epic);
@@ -9,6 +9,7 @@ import ru.practicum.javakanban.model.Task;
 
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -136,6 +137,48 @@ class InMemoryHistoryManagerTest {
 
     }
 
+    @Test
+    public void boundedHistoryEvictsLeastRecentlyViewed() {
+        HistoryManager boundedHistoryManager = Managers.getBoundedHistory(2);
+        Epic first = new Epic("Эпик 1", "Описание");
+        Epic second = new Epic("Эпик 2", "Описание");
+        Epic third = new Epic("Эпик 3", "Описание");
+        inMemoryTaskManager.createEpic(first);
+        inMemoryTaskManager.createEpic(second);
+        inMemoryTaskManager.createEpic(third);
+
+        boundedHistoryManager.add(first);
+        boundedHistoryManager.add(second);
+        boundedHistoryManager.add(first);
+        boundedHistoryManager.add(third);
+
+        assertAll(
+                () -> assertEquals(List.of(third, first), boundedHistoryManager.getHistory(),
+                        "Вытеснена не самая давняя задача"),
+                () -> assertEquals(2, ((InMemoryHistoryManager) boundedHistoryManager).size(),
+                        "История превысила ёмкость"),
+                () -> assertThrows(IllegalArgumentException.class, () -> Managers.getBoundedHistory(0))
+        );
+    }
+
+    @Test
+    public void streamHistoryWalksLazilyFromLastViewed() throws ManagerPrioritizeException {
+        createTestSubtask();
+        task = new Task("Задача", "Описание задачи", TASKS_DURATION, TASKS_DATE_TIME.plusDays(1));
+        inMemoryTaskManager.createTask(task);
+        inMemoryHistoryManager.add(epic);
+        inMemoryHistoryManager.add(subtask);
+        inMemoryHistoryManager.add(task);
+
+        assertAll(
+                () -> assertEquals(List.of(task, subtask), inMemoryHistoryManager.streamHistory().limit(2).toList(),
+                        "Поток идёт не от последнего просмотра"),
+                () -> assertEquals(List.of(subtask), inMemoryHistoryManager.getHistoryAfter(task.getId(), 1),
+                        "Неверная страница после курсора"),
+                () -> assertThrows(IllegalArgumentException.class, () -> inMemoryHistoryManager.getHistory(-1))
+        );
+    }
+
     //вспомогательные методы
     private void createTestTask() throws ManagerPrioritizeException {
         task = new Task("Задача", "Описание задачи", TASKS_DURATION, TASKS_DATE_TIME);
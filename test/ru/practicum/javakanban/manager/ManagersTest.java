@@ -7,11 +7,14 @@ import ru.practicum.javakanban.model.Epic;
 import ru.practicum.javakanban.model.Status;
 import ru.practicum.javakanban.model.Subtask;
 import ru.practicum.javakanban.model.Task;
+import ru.practicum.javakanban.model.TaskType;
 
 import java.io.IOException;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -304,6 +307,24 @@ public abstract class ManagersTest {
         assertTrue(taskManager.getHistory().contains(task), "Задача не сохранилась в истории после get");
     }
 
+    @Test
+    public void getHistoryPagesGoFromLastViewed() throws ManagerPrioritizeException {
+        task = new Task("Задача", "Описание задачи", TASKS_DURATION, TASKS_DATE_TIME.plusDays(1));
+        taskManager.createTask(task);
+        createTestEpic();
+        createTestSubtask();
+        taskManager.getTask(task.getId());
+        taskManager.getEpic(epic.getId());
+        taskManager.getSubtask(subtask.getId());
+
+        assertAll(
+                () -> assertEquals(List.of(subtask, epic), taskManager.getHistory(2), "Неверная первая страница"),
+                () -> assertEquals(List.of(task), taskManager.getHistoryAfter(epic.getId(), 2),
+                        "Неверная следующая страница"),
+                () -> assertTrue(taskManager.getHistoryAfter(0, 2).isEmpty(), "Страница после неизвестного курсора")
+        );
+    }
+
     @Test
     public void getEpicCorrectIdReturnEpic() {
         createTestEpic();
@@ -676,6 +697,35 @@ public abstract class ManagersTest {
                 "добавлении задач");
     }
 
+    @Test
+    public void createTaskBetweenScheduledTasksChecksBothNeighbours() throws ManagerPrioritizeException {
+        for (int i = 0; i < 5; i++) {
+            taskManager.createTask(new Task("Задача " + i, "Тестовое описание", TASKS_DURATION,
+                    TASKS_DATE_TIME.plusHours(i)));
+        }
+        task1 = new Task("Задача в промежутке", "Тестовое описание", TASKS_DURATION,
+                TASKS_DATE_TIME.plusHours(2).plusMinutes(30));
+        task2 = new Task("Задача до следующей", "Тестовое описание", Duration.ofMinutes(45),
+                TASKS_DATE_TIME.plusHours(3).plusMinutes(30));
+        Task longTask = new Task("Длинная задача", "Тестовое описание", Duration.ofHours(3),
+                TASKS_DATE_TIME.minusMinutes(30));
+
+        taskManager.createTask(task1);
+        Task movedTask = new Task(task1.getName(), task1.getDescription(), task1.getStatus(), TASKS_DURATION,
+                task1.getStartTime().plusMinutes(10));
+
+        assertAll(
+                () -> assertThrows(ManagerPrioritizeException.class, () -> taskManager.createTask(task2),
+                        "Нет исключения при пересечении со следующей задачей"),
+                () -> assertThrows(ManagerPrioritizeException.class, () -> taskManager.createTask(longTask),
+                        "Нет исключения при пересечении с несколькими задачами"),
+                () -> assertThrows(ManagerPrioritizeException.class,
+                        () -> taskManager.updateTask(movedTask, task1.getId()),
+                        "Нет исключения при сдвиге задачи на следующую"),
+                () -> assertEquals(6, taskManager.getPrioritizedTasks().size(), "Неверный список приоритизации")
+        );
+    }
+
     @Test
     public void createSubtaskCrossedTimesException() throws ManagerPrioritizeException {
         createTestTask();
@@ -743,6 +793,173 @@ public abstract class ManagersTest {
                 "не удалились из приоритезации");
     }
 
+    @Test
+    public void runInTransactionAppliesAllOperations() throws ManagerPrioritizeException {
+        taskManager.runInTransaction(manager -> {
+            epic = new Epic("Эпик", "Описание эпика");
+            manager.createEpic(epic);
+
+            for (int i = 0; i < 50; i++) {
+                manager.createSubtask(new Subtask("Подзадача " + i, "Описание", TASKS_DURATION,
+                        TASKS_DATE_TIME.plusHours(i)), epic.getId());
+            }
+        });
+
+        assertAll(
+                () -> assertEquals(50, taskManager.getEpicSubtasks(epic.getId()).size(),
+                        "Подзадачи пакета не добавились в эпик"),
+                () -> assertEquals(50, taskManager.getPrioritizedTasks().size(),
+                        "Подзадачи пакета не добавились в приоритизацию"),
+                () -> assertEquals(TASKS_DATE_TIME, taskManager.getEpics().get(epic.getId()).getStartTime(),
+                        "Не рассчиталось время начала эпика")
+        );
+    }
+
+    @Test
+    public void runInTransactionRollsBackOnCrossedTimes() throws ManagerPrioritizeException {
+        createTestEpic();
+        createTestSubtask();
+        Epic epicBefore = taskManager.getEpics().get(epic.getId());
+        Status statusBefore = epicBefore.getStatus();
+        taskManager.getSubtask(subtask.getId());
+
+        assertThrows(ManagerPrioritizeException.class, () -> taskManager.runInTransaction(manager -> {
+            manager.createTask(new Task("Задача", "Описание", TASKS_DURATION,
+                    TASKS_DATE_TIME.minusDays(1)));
+            manager.deleteSubtask(subtask.getId());
+            manager.createSubtask(new Subtask("Подзадача", "Описание", Status.DONE, TASKS_DURATION,
+                    TASKS_DATE_TIME.plusHours(1)), epic.getId());
+            manager.createTask(new Task("Пересекающаяся задача", "Описание", TASKS_DURATION,
+                    TASKS_DATE_TIME.plusHours(1).plusMinutes(10)));
+        }));
+
+        assertAll(
+                () -> assertTrue(taskManager.getTasks().isEmpty(), "Задачи пакета не откатились"),
+                () -> assertEquals(List.of(subtask), taskManager.getEpicSubtasks(epic.getId()),
+                        "Подзадачи эпика не откатились"),
+                () -> assertSame(epicBefore, taskManager.getEpics().get(epic.getId()), "Эпик не откатился"),
+                () -> assertEquals(statusBefore, epicBefore.getStatus(), "Статус эпика не откатился"),
+                () -> assertEquals(List.of(subtask), taskManager.getPrioritizedTasks(),
+                        "Приоритизация не откатилась"),
+                () -> assertEquals(List.of(subtask), taskManager.getHistory(), "История не откатилась")
+        );
+
+        task = new Task("Задача", "Описание задачи", TASKS_DURATION, TASKS_DATE_TIME.plusDays(1));
+        taskManager.createTask(task);
+        assertEquals(subtask.getId() + 1, task.getId(), "Счётчик id не откатился");
+    }
+
+    @Test
+    public void deleteWhereRemovesMatchingTasksEverywhere() throws ManagerPrioritizeException {
+        createTestEpic();
+        subtask = new Subtask("Готовая подзадача", "Описание", Status.DONE, TASKS_DURATION, TASKS_DATE_TIME);
+        taskManager.createSubtask(subtask, epic.getId());
+        Subtask kept = new Subtask("Новая подзадача", "Описание", TASKS_DURATION, TASKS_DATE_TIME.plusHours(1));
+        taskManager.createSubtask(kept, epic.getId());
+        task = new Task("Готовая задача", "Описание", Status.DONE, TASKS_DURATION, TASKS_DATE_TIME.plusHours(2));
+        taskManager.createTask(task);
+        taskManager.getSubtask(subtask.getId());
+        taskManager.getTask(task.getId());
+
+        taskManager.deleteWhere(someTask -> someTask.getType() != TaskType.EPIC
+                && someTask.getStatus() == Status.DONE);
+
+        assertAll(
+                () -> assertTrue(taskManager.getTasks().isEmpty(), "Задача под фильтром не удалилась"),
+                () -> assertEquals(List.of(kept), taskManager.getEpicSubtasks(epic.getId()),
+                        "Подзадача под фильтром осталась в эпике"),
+                () -> assertEquals(Status.NEW, taskManager.getEpics().get(epic.getId()).getStatus(),
+                        "Статус эпика не пересчитался"),
+                () -> assertEquals(List.of(kept), taskManager.getPrioritizedTasks(),
+                        "Удалённые задачи остались в приоритизации"),
+                () -> assertTrue(taskManager.getHistory().isEmpty(), "Удалённые задачи остались в истории")
+        );
+    }
+
+    @Test
+    public void deleteWhereEpicRemovesItsSubtasks() throws ManagerPrioritizeException {
+        createTestEpic();
+        createTestSubtask();
+
+        taskManager.deleteWhere(someTask -> someTask.getId().equals(epic.getId()));
+
+        assertAll(
+                () -> assertTrue(taskManager.getEpics().isEmpty(), "Эпик не удалился"),
+                () -> assertTrue(taskManager.getSubtasks().isEmpty(), "Подзадачи эпика не удалились"),
+                () -> assertTrue(taskManager.getPrioritizedTasks().isEmpty(),
+                        "Подзадачи эпика остались в приоритизации")
+        );
+    }
+
+    @Test
+    public void findFreeSlotSkipsBusyTime() throws ManagerPrioritizeException {
+        createTestTask();
+        taskManager.createTask(new Task("Вторая задача", "Описание", TASKS_DURATION,
+                TASKS_DATE_TIME.plusMinutes(40)));
+
+        assertAll(
+                () -> assertEquals(Optional.of(TASKS_DATE_TIME.minusHours(1)),
+                        taskManager.findFreeSlot(TASKS_DURATION, TASKS_DATE_TIME.minusHours(1)),
+                        "Свободное время до задач не найдено"),
+                () -> assertEquals(Optional.of(TASKS_DATE_TIME.plusMinutes(30)),
+                        taskManager.findFreeSlot(Duration.ofMinutes(10), TASKS_DATE_TIME.plusMinutes(10)),
+                        "Не найден промежуток между задачами"),
+                () -> assertEquals(Optional.of(TASKS_DATE_TIME.plusMinutes(70)),
+                        taskManager.findFreeSlot(Duration.ofMinutes(20), TASKS_DATE_TIME),
+                        "Промежуток не перенёсся за короткое окно между задачами")
+        );
+    }
+
+    @Test
+    public void findFreeSlotsReturnsSlotsInsideWindow() throws ManagerPrioritizeException {
+        createTestTask();
+
+        List<LocalDateTime> slots = taskManager.findFreeSlots(Duration.ofMinutes(20), TASKS_DATE_TIME.minusMinutes(40),
+                TASKS_DATE_TIME.plusMinutes(60), 5);
+
+        assertEquals(List.of(TASKS_DATE_TIME.minusMinutes(40), TASKS_DATE_TIME.minusMinutes(20),
+                TASKS_DATE_TIME.plusMinutes(30)), slots, "Неверные свободные промежутки");
+    }
+
+    @Test
+    public void findFreeSlotSkipsZeroDurationTaskStart() throws ManagerPrioritizeException {
+        taskManager.createTask(new Task("Отметка", "Описание", Duration.ZERO, TASKS_DATE_TIME));
+        taskManager.createTask(new Task("Вторая отметка", "Описание", Duration.ZERO, TASKS_DATE_TIME.plusMinutes(20)));
+
+        Optional<LocalDateTime> slot = taskManager.findFreeSlot(Duration.ofMinutes(20), TASKS_DATE_TIME);
+        List<LocalDateTime> slots = taskManager.findFreeSlots(Duration.ofMinutes(20), TASKS_DATE_TIME,
+                TASKS_DATE_TIME.plusHours(2), 2);
+
+        assertAll(
+                () -> assertTrue(slot.isPresent() && slot.get().isAfter(TASKS_DATE_TIME),
+                        "Промежуток начинается одновременно с задачей нулевой длительности"),
+                () -> assertEquals(2, slots.size(), "Неверное число свободных промежутков"),
+                () -> assertDoesNotThrow(() -> taskManager.createTask(new Task("Задача в промежутке", "Описание",
+                        Duration.ofMinutes(20), slot.orElseThrow())), "Найденный промежуток нельзя занять"),
+                () -> assertDoesNotThrow(() -> taskManager.createTask(new Task("Задача во втором промежутке",
+                        "Описание", Duration.ofMinutes(20), slots.get(1))), "Второй промежуток нельзя занять")
+        );
+    }
+
+    @Test
+    public void rangeQueriesReturnTasksInWindow() throws ManagerPrioritizeException {
+        createTaskForPrioritized();
+        LocalDateTime from = task1.getStartTime().plusMinutes(10);
+        LocalDateTime to = subtask.getStartTime().plusMinutes(1);
+
+        assertAll(
+                () -> assertEquals(List.of(subtask), List.copyOf(taskManager.getTasksStartingBetween(from, to)),
+                        "Неверные задачи, начинающиеся в окне"),
+                () -> assertEquals(List.of(task1, subtask), List.copyOf(taskManager.getTasksOverlapping(from, to)),
+                        "Неверные задачи, пересекающие окно"),
+                () -> assertTrue(taskManager.getTasksOverlapping(task1.getEndTime(), subtask.getStartTime())
+                        .isEmpty(), "Задача, закончившаяся к началу окна, попала в окно"),
+                () -> assertThrows(UnsupportedOperationException.class,
+                        () -> taskManager.getTasksStartingBetween(from, to).clear(),
+                        "Окно приоритизации можно изменить")
+        );
+    }
+
 
     //вспомогательные методы
     private void createTestTask() throws ManagerPrioritizeException {
@@ -0,0 +1,221 @@
+package ru.practicum.javakanban.manager;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.practicum.javakanban.exeptions.ManagerPrioritizeException;
+import ru.practicum.javakanban.model.Status;
+import ru.practicum.javakanban.model.Task;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SessionHistoryManagerTest {
+
+    private SessionHistoryManager sessionHistoryManager;
+    private MutableClock clock;
+    private static LocalDateTime TASKS_DATE_TIME = LocalDateTime.of(2024, 12, 31, 12, 30);
+    private static Duration TASKS_DURATION = Duration.ofMinutes(30);
+
+    @BeforeEach
+    public void createSessionHistoryManager() {
+        clock = new MutableClock();
+        sessionHistoryManager = new SessionHistoryManager(2, 4, Duration.ofMinutes(30), clock);
+    }
+
+    @Test
+    public void viewsAreRecordedIntoSessionOfCurrentUser() throws ManagerPrioritizeException {
+        TaskManager taskManager = new InMemoryTaskManager(sessionHistoryManager);
+        Task first = new Task("Задача 1", "Описание", TASKS_DURATION, TASKS_DATE_TIME);
+        Task second = new Task("Задача 2", "Описание", TASKS_DURATION, TASKS_DATE_TIME.plusHours(1));
+        taskManager.createTask(first);
+        taskManager.createTask(second);
+
+        sessionHistoryManager.withSession("alice", () -> taskManager.getTask(first.getId()));
+        sessionHistoryManager.withSession("bob", () -> taskManager.getTask(second.getId()));
+        taskManager.deleteTask(first.getId());
+
+        assertAll(
+                () -> assertEquals(List.of(), sessionHistoryManager.getHistory("alice"),
+                        "Удалённая задача осталась в истории сессии"),
+                () -> assertEquals(List.of(second), sessionHistoryManager.withSession("bob", taskManager::getHistory),
+                        "Неверная история сессии"),
+                () -> assertEquals(List.of(), taskManager.getHistory(), "Просмотры попали в анонимную сессию")
+        );
+    }
+
+    @Test
+    public void idleSessionsAreEvicted() {
+        sessionHistoryManager.withSession("alice", () -> record(1));
+        clock.advance(Duration.ofMinutes(20));
+        sessionHistoryManager.withSession("bob", () -> record(2));
+        clock.advance(Duration.ofMinutes(20));
+
+        assertAll(
+                () -> assertEquals(1, sessionHistoryManager.getSessionCount(), "Простаивающая сессия не удалена"),
+                () -> assertEquals(1, sessionHistoryManager.getTotalSize(), "Неверный учёт записей"),
+                () -> assertEquals(List.of(), sessionHistoryManager.getHistory("alice"), "Сессия не удалена")
+        );
+    }
+
+    @Test
+    public void totalBudgetEvictsLeastRecentlyUsedSessions() {
+        sessionHistoryManager.withSession("alice", () -> record(1, 2, 3));
+        sessionHistoryManager.withSession("bob", () -> record(4, 5));
+        sessionHistoryManager.withSession("carol", () -> record(6));
+
+        assertAll(
+                () -> assertEquals(3, sessionHistoryManager.getTotalSize(), "Бюджет записей превышен"),
+                () -> assertEquals(List.of(), sessionHistoryManager.getHistory("alice"),
+                        "Не удалена самая давняя сессия"),
+                () -> assertEquals(2, sessionHistoryManager.getHistory("bob").size(), "Удалена лишняя сессия")
+        );
+    }
+
+    @Test
+    public void rollbackOfOneSessionKeepsOtherSessions() throws ManagerPrioritizeException {
+        TaskManager taskManager = new InMemoryTaskManager(sessionHistoryManager);
+        Task first = new Task("Задача 1", "Описание", TASKS_DURATION, TASKS_DATE_TIME);
+        Task second = new Task("Задача 2", "Описание", TASKS_DURATION, TASKS_DATE_TIME.plusHours(1));
+        taskManager.createTask(first);
+        taskManager.createTask(second);
+
+        sessionHistoryManager.withSession("alice", () -> taskManager.getTask(first.getId()));
+        sessionHistoryManager.withSession("bob", () -> {
+            taskManager.getTask(first.getId());
+            return taskManager.getTask(second.getId());
+        });
+
+        // удаление в пакете убирает задачу из всех сессий, а пересекающаяся задача откатывает пакет
+        Exception failure = sessionHistoryManager.withSession("alice", () -> {
+            try {
+                taskManager.runInTransaction(manager -> {
+                    manager.getTask(second.getId());
+                    manager.deleteTask(first.getId());
+                    manager.createTask(new Task("Пересекающаяся задача", "Описание", TASKS_DURATION,
+                            TASKS_DATE_TIME.plusHours(1)));
+                });
+                return null;
+            } catch (ManagerPrioritizeException e) {
+                return e;
+            }
+        });
+
+        assertAll(
+                () -> assertInstanceOf(ManagerPrioritizeException.class, failure, "Пакет не откатился"),
+                () -> assertEquals(List.of(first), sessionHistoryManager.getHistory("alice"),
+                        "История сессии с пакетом не откатилась"),
+                () -> assertEquals(List.of(second, first), sessionHistoryManager.getHistory("bob"),
+                        "Откат пакета задел историю другой сессии"),
+                () -> assertEquals(3, sessionHistoryManager.getTotalSize(), "Неверный учёт записей после отката")
+        );
+    }
+
+    @Test
+    public void rollbackKeepsViewsOtherUsersMadeDuringBatch() throws ManagerPrioritizeException {
+        TaskManager taskManager = new InMemoryTaskManager(sessionHistoryManager);
+        Task first = new Task("Задача 1", "Описание", TASKS_DURATION, TASKS_DATE_TIME);
+        Task second = new Task("Задача 2", "Описание", TASKS_DURATION, TASKS_DATE_TIME.plusHours(1));
+        taskManager.createTask(first);
+        taskManager.createTask(second);
+        sessionHistoryManager.withSession("bob", () -> {
+            taskManager.getTask(first.getId());
+            return taskManager.getTask(second.getId());
+        });
+
+        // bob просматривает задачу в своём потоке, пока пакет alice удаляет другую и откатывается
+        Exception failure = sessionHistoryManager.withSession("alice", () -> {
+            try {
+                taskManager.runInTransaction(manager -> {
+                    manager.deleteTask(second.getId());
+                    Thread viewer = Thread.ofPlatform().start(() -> sessionHistoryManager.withSession("bob",
+                            () -> taskManager.getTask(first.getId())));
+                    try {
+                        viewer.join();
+                    } catch (InterruptedException e) {
+                        throw new IllegalStateException(e);
+                    }
+                    manager.createTask(new Task("Пересекающаяся задача", "Описание", TASKS_DURATION,
+                            TASKS_DATE_TIME));
+                });
+                return null;
+            } catch (ManagerPrioritizeException e) {
+                return e;
+            }
+        });
+
+        assertAll(
+                () -> assertInstanceOf(ManagerPrioritizeException.class, failure, "Пакет не откатился"),
+                () -> assertEquals(List.of(first, second), sessionHistoryManager.getHistory("bob"),
+                        "Откат пакета отменил просмотр другого пользователя"),
+                () -> assertEquals(2, sessionHistoryManager.getTotalSize(), "Неверный учёт записей после отката")
+        );
+    }
+
+    @Test
+    public void deferredViewsKeepSessionOfViewer() throws ManagerPrioritizeException {
+        HistoryManager concurrentHistory = new ConcurrentHistoryManager(sessionHistoryManager);
+        Task task = new Task("Задача", "Описание", 1, Status.NEW, TASKS_DURATION, TASKS_DATE_TIME);
+
+        // просмотр разбирается в сессии bob, но записывается в сессию просмотревшей alice
+        sessionHistoryManager.withSession("alice", () -> {
+            concurrentHistory.add(task);
+            return null;
+        });
+        List<Task> bobHistory = sessionHistoryManager.withSession("bob", concurrentHistory::getHistory);
+
+        TaskManager taskManager = new InMemoryTaskManager(sessionHistoryManager);
+        try (EventLoopTaskManager eventLoop = new EventLoopTaskManager(taskManager)) {
+            Task viewed = new Task("Задача в цикле", "Описание", TASKS_DURATION, TASKS_DATE_TIME.plusHours(1));
+            eventLoop.createTask(viewed);
+            sessionHistoryManager.withSession("carol", () -> eventLoop.getTask(viewed.getId()));
+
+            assertAll(
+                    () -> assertEquals(List.of(), bobHistory, "Просмотр попал в сессию разобравшего очередь"),
+                    () -> assertEquals(List.of(task), sessionHistoryManager.getHistory("alice"),
+                            "Просмотр не попал в сессию просмотревшего"),
+                    () -> assertEquals(List.of(viewed), sessionHistoryManager.withSession("carol",
+                            eventLoop::getHistory), "Просмотр через цикл событий не попал в сессию"),
+                    () -> assertEquals(List.of(), eventLoop.getHistory(), "Просмотр попал в анонимную сессию")
+            );
+        }
+    }
+
+    private Void record(int... ids) {
+        for (int id : ids) {
+            sessionHistoryManager.add(new Task("Задача", "Описание", id, Status.NEW, TASKS_DURATION,
+                    TASKS_DATE_TIME));
+        }
+
+        return null;
+    }
+
+    private static class MutableClock extends Clock {
+        private Instant now = Instant.parse("2024-12-31T12:00:00Z");
+
+        private void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package ru.practicum.javakanban.manager;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.practicum.javakanban.exeptions.ManagerPrioritizeException;
+import ru.practicum.javakanban.model.Epic;
+import ru.practicum.javakanban.model.Subtask;
+import ru.practicum.javakanban.model.Task;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StripedTaskManagerTest extends ThreadSafeManagersTest {
+
+    @Override
+    @BeforeEach
+    public void createTaskManager() {
+        taskManager = Managers.getStriped();
+    }
+
+    @Test
+    public void parallelUpdatesOfDifferentEpicsKeepEpicsConsistent() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Epic> epics = new ArrayList<>();
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int i = 0; i < 8; i++) {
+            Epic someEpic = new Epic("Эпик " + i, "Описание");
+            taskManager.createEpic(someEpic);
+            epics.add(someEpic);
+        }
+
+        for (int i = 0; i < epics.size(); i++) {
+            Epic someEpic = epics.get(i);
+            LocalDateTime epicStart = TASKS_DATE_TIME.plusDays(2L * i);
+            futures.add(executor.submit(() -> {
+                for (int j = 0; j < 50; j++) {
+                    Subtask someSubtask = new Subtask("Подзадача", "Описание", TASKS_DURATION,
+                            epicStart.plusMinutes(30L * j));
+                    taskManager.createSubtask(someSubtask, someEpic.getId());
+                    if (j % 2 == 0) {
+                        taskManager.deleteSubtask(someSubtask.getId());
+                    }
+                }
+                return null;
+            }));
+        }
+
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        assertAll(
+                () -> assertEquals(200, taskManager.getSubtasks().size(), "Потерялись подзадачи"),
+                () -> assertEquals(200, taskManager.getPrioritizedTasks().size(), "Неверный список приоритизации"),
+                () -> epics.forEach(someEpic -> assertEquals(25, taskManager.getEpicSubtasks(someEpic.getId()).size(),
+                        "Неверное число подзадач эпика"))
+        );
+    }
+
+    @Test
+    public void updateRacingWithCreateNeverLeavesOverlaps() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        try {
+            for (int i = 0; i < 2000; i++) {
+                TaskManager manager = Managers.getStriped();
+                Task someTask = new Task("Задача", "Описание", Duration.ofMinutes(15), TASKS_DATE_TIME.withHour(10)
+                        .withMinute(30));
+                manager.createTask(someTask);
+                CyclicBarrier start = new CyclicBarrier(2);
+
+                // расширенная задача 10:00-11:30 накрывает создаваемую 11:00-11:10, поэтому одно из изменений
+                // должно получить отказ
+                Future<?> update = executor.submit(() -> {
+                    start.await();
+                    manager.updateTask(new Task("Задача", "Описание", Duration.ofMinutes(90),
+                            TASKS_DATE_TIME.withHour(10).withMinute(0)), someTask.getId());
+                    return null;
+                });
+                Future<?> create = executor.submit(() -> {
+                    start.await();
+                    manager.createTask(new Task("Другая задача", "Описание", Duration.ofMinutes(10),
+                            TASKS_DATE_TIME.withHour(11).withMinute(0)));
+                    return null;
+                });
+
+                boolean updated = succeeded(update);
+                boolean created = succeeded(create);
+                List<Task> prioritized = manager.getPrioritizedTasks();
+
+                assertFalse(updated && created, "Пересекающиеся обновление и создание прошли проверку");
+                assertEquals(created ? 2 : 1, prioritized.size(), "Неверный список приоритизации");
+                if (created) {
+                    assertFalse(prioritized.get(0).getEndTime().isAfter(prioritized.get(1).getStartTime()),
+                            "Задачи в списке приоритизации пересекаются");
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void readersDoNotSeeUnfinishedTransaction() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        CountDownLatch written = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Future<?> transaction = executor.submit(() -> {
+            taskManager.runInTransaction(manager -> {
+                manager.createTask(new Task("Задача", "Описание", TASKS_DURATION, TASKS_DATE_TIME));
+                written.countDown();
+                awaitQuietly(release);
+                // пересекающаяся задача откатывает весь пакет
+                manager.createTask(new Task("Пересекающаяся задача", "Описание", TASKS_DURATION,
+                        TASKS_DATE_TIME));
+            });
+            return null;
+        });
+
+        assertTrue(written.await(5, TimeUnit.SECONDS), "Пакет не начался");
+        CompletableFuture<List<Task>> read = CompletableFuture.supplyAsync(taskManager::getAllTasks);
+        Thread.sleep(100);
+        boolean readDuringTransaction = read.isDone();
+        release.countDown();
+
+        ExecutionException failure = assertThrows(ExecutionException.class, transaction::get);
+        executor.shutdown();
+
+        assertAll(
+                () -> assertFalse(readDuringTransaction, "Чтение не дождалось окончания пакета"),
+                () -> assertInstanceOf(ManagerPrioritizeException.class, failure.getCause(), "Пакет не откатился"),
+                () -> assertTrue(read.get(5, TimeUnit.SECONDS).isEmpty(), "Читатель увидел откатившуюся задачу")
+        );
+    }
+
+    private static boolean succeeded(Future<?> future) throws InterruptedException {
+        try {
+            future.get();
+            return true;
+        } catch (ExecutionException e) {
+            assertInstanceOf(ManagerPrioritizeException.class, e.getCause(), "Неожиданная ошибка изменения");
+            return false;
+        }
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package ru.practicum.javakanban.manager;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.javakanban.exeptions.ManagerPrioritizeException;
+import ru.practicum.javakanban.model.Task;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// общие сценарии для менеджеров, которыми можно пользоваться из нескольких потоков
+public abstract class ThreadSafeManagersTest extends ManagersTest {
+
+    protected ExecutorService newWriters() {
+        return Executors.newFixedThreadPool(8);
+    }
+
+    @Test
+    public void parallelWritersGetUniqueIdsAndNoOverlaps() throws Exception {
+        AtomicInteger rejected = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+
+        // каждое время начала используется двумя задачами, поэтому ровно половина должна получить отказ
+        try (ExecutorService executor = newWriters()) {
+            for (int i = 0; i < 400; i++) {
+                int slot = i / 2;
+                futures.add(executor.submit(() -> {
+                    try {
+                        Task someTask = new Task("Задача", "Описание", TASKS_DURATION,
+                                TASKS_DATE_TIME.plusHours(slot));
+                        taskManager.createTask(someTask);
+                        taskManager.getTask(someTask.getId());
+                    } catch (ManagerPrioritizeException e) {
+                        rejected.incrementAndGet();
+                    }
+                    taskManager.getPrioritizedTasks();
+                    return null;
+                }));
+            }
+
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+
+        assertAll(
+                () -> assertEquals(200, rejected.get(), "Пересекающиеся задачи прошли проверку"),
+                () -> assertEquals(200, taskManager.getTasks().size(), "Потерялись задачи"),
+                () -> assertEquals(200, taskManager.getPrioritizedTasks().size(), "Неверный список приоритизации"),
+                () -> assertEquals(200, taskManager.getHistory().size(), "Потерялись просмотры")
+        );
+    }
+}
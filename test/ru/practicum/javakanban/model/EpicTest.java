@@ -8,6 +8,7 @@ import ru.practicum.javakanban.manager.TaskManager;
 
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -138,4 +139,50 @@ class EpicTest {
 
         assertNull(epic.getEndTime());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void deleteEarliestSubtaskMovesEpicTimes() {
+        taskManager.deleteSubtask(subtask1.getId());
+
+        assertAll(
+                () -> assertEquals(LATE_DATE_TIME, epic.getStartTime(), "Начало эпика не сдвинулось"),
+                () -> assertEquals(SUBTASKS_DURATION, epic.getDuration(), "Длительность эпика не уменьшилась"),
+                () -> assertEquals(LATE_DATE_TIME.plus(SUBTASKS_DURATION), epic.getEndTime(),
+                        "Окончание эпика изменилось")
+        );
+    }
+
+    @Test
+    public void refreshSubtaskRecountsChangedSubtask() {
+        subtask2.setStatus(Status.DONE);
+        subtask2.setDuration(Duration.ofMinutes(90));
+        epic.refreshSubtask(subtask2);
+        epic.updateStatus();
+
+        assertAll(
+                () -> assertEquals(Status.IN_PROGRESS, epic.getStatus(), "Статус эпика не пересчитался"),
+                () -> assertEquals(SUBTASKS_DURATION.plusMinutes(90), epic.getDuration(),
+                        "Длительность эпика не пересчиталась"),
+                () -> assertEquals(LATE_DATE_TIME.plusMinutes(90), epic.getEndTime(),
+                        "Окончание эпика не пересчиталось")
+        );
+    }
+
+    @Test
+    public void subtasksKeepOrderAndAreFoundById() {
+        List<Subtask> firstRead = epic.getSubtasks();
+        List<Subtask> beforeDelete = List.copyOf(firstRead);
+        taskManager.deleteSubtask(subtask1.getId());
+
+        assertAll(
+                () -> assertEquals(List.of(subtask1, subtask2), beforeDelete, "Неверный порядок подзадач эпика"),
+                () -> assertEquals(List.of(subtask2), firstRead, "Представление подзадач не видит удаление"),
+                () -> assertEquals(List.of(subtask2), epic.getSubtasks(), "Подзадача не удалилась из эпика"),
+                () -> assertSame(epic.getSubtasks(), epic.getSubtasks(), "Список подзадач копируется при чтении"),
+                () -> assertThrows(UnsupportedOperationException.class, () -> firstRead.remove(subtask2),
+                        "Подзадачи эпика можно изменить через представление"),
+                () -> assertFalse(epic.containsSubtask(subtask1.getId()), "Удалённая подзадача найдена в эпике"),
+                () -> assertTrue(epic.containsSubtask(subtask2.getId()), "Подзадача не найдена в эпике")
+        );
+    }
+}